@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+package com.mightyimmersion.customlauncher;
+
+import org.json.JSONArray;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsEventBatcherTest {
+    /**
+     * Runs nothing on its own, the test runs what was posted
+     */
+    static class ManualScheduler implements AnalyticsEventBatcher.Scheduler {
+        final List<Runnable> posted = new ArrayList<>();
+        final List<Runnable> delayed = new ArrayList<>();
+
+        @Override
+        public void post(Runnable runnable) {
+            posted.add(runnable);
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMs) {
+            assertEquals(AnalyticsEventBatcher.FLUSH_AGE_MS, delayMs);
+            delayed.add(runnable);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            posted.remove(runnable);
+            delayed.remove(runnable);
+        }
+
+        void runPosted() {
+            List<Runnable> runnables = new ArrayList<>(posted);
+            posted.clear();
+            for (Runnable runnable : runnables) runnable.run();
+        }
+
+        void runDelayed() {
+            List<Runnable> runnables = new ArrayList<>(delayed);
+            delayed.clear();
+            for (Runnable runnable : runnables) runnable.run();
+        }
+    }
+
+    private final List<String> batches = new ArrayList<>();
+    private boolean accept = true;
+    private ManualScheduler scheduler;
+    private AnalyticsEventBatcher batcher;
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        batcher = new AnalyticsEventBatcher((eventsJson, eventCount) -> {
+            if (!accept) return false;
+            batches.add(eventsJson);
+            return true;
+        }, scheduler);
+    }
+
+    @Test
+    public void validatesEvents() {
+        assertTrue(AnalyticsEventBatcher.isValidEvent("{\"name\":\"launch\"}"));
+        assertFalse(AnalyticsEventBatcher.isValidEvent(null));
+        assertFalse(AnalyticsEventBatcher.isValidEvent("  "));
+        assertFalse(AnalyticsEventBatcher.isValidEvent("{\"name\":"));
+        assertFalse(AnalyticsEventBatcher.isValidEvent("[1,2]"));
+    }
+
+    @Test
+    public void flushesOldEventsAfterFlushAge() {
+        batcher.add("{\"e\":0}");
+        batcher.add("{\"e\":1}");
+
+        assertEquals(1, scheduler.delayed.size());
+        assertTrue(scheduler.posted.isEmpty());
+        scheduler.runDelayed();
+
+        assertEquals(1, batches.size());
+        assertEquals(2, new JSONArray(batches.get(0)).length());
+        assertEquals(0, batcher.getBufferedEventCount());
+        assertEquals(2, batcher.getSentEventCount());
+    }
+
+    @Test
+    public void flushesRightAwayAtFlushSize() {
+        for (int i = 0; i < AnalyticsEventBatcher.FLUSH_SIZE; i++) batcher.add("{\"e\":" + i + "}");
+
+        assertTrue(scheduler.delayed.isEmpty());
+        scheduler.runPosted();
+
+        assertEquals(1, batches.size());
+        JSONArray batch = new JSONArray(batches.get(0));
+        assertEquals(AnalyticsEventBatcher.FLUSH_SIZE, batch.length());
+        assertEquals(0, batch.getJSONObject(0).getInt("e"));
+    }
+
+    @Test
+    public void dropsOldestEventWhenFull() {
+        for (int i = 0; i < AnalyticsEventBatcher.CAPACITY; i++) assertTrue(batcher.add("{\"e\":" + i + "}"));
+        assertFalse(batcher.add("{\"e\":" + AnalyticsEventBatcher.CAPACITY + "}"));
+
+        batcher.flush();
+
+        JSONArray batch = new JSONArray(batches.get(0));
+        assertEquals(AnalyticsEventBatcher.CAPACITY, batch.length());
+        assertEquals(1, batch.getJSONObject(0).getInt("e"));
+        assertEquals(1, batcher.getDroppedEventCount());
+    }
+
+    @Test
+    public void countsRejectedBatchesAsDropped() {
+        accept = false;
+        batcher.add("{}");
+        batcher.add("{}");
+
+        batcher.flush();
+
+        assertEquals(2, batcher.getDroppedEventCount());
+        assertEquals(0, batcher.getSentEventCount());
+        assertTrue(scheduler.delayed.isEmpty());
+    }
+
+    @Test
+    public void flushWithoutEventsSendsNothing() {
+        batcher.flush();
+
+        assertTrue(batches.isEmpty());
+    }
+}
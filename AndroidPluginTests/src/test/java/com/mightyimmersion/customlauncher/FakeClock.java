@@ -0,0 +1,22 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+class FakeClock implements Clock {
+    long now = 1_000;
+
+    @Override
+    public long elapsedRealtime() {
+        return now;
+    }
+
+    void advance(long ms) {
+        now += ms;
+    }
+}
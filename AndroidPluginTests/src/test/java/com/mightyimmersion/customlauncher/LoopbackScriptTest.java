@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+package com.mightyimmersion.customlauncher;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class LoopbackScriptTest {
+    private final LoopbackScript script = new LoopbackScript();
+
+    @Test
+    public void repliesWithScriptedPayload() {
+        script.setScriptedReply(AdminAppMessageTypes.DEVICE_STATUS, "{\"battery\":80}");
+
+        assertEquals("{\"battery\":80}", script.nextReply(AdminAppMessageTypes.DEVICE_STATUS));
+        assertEquals("{\"battery\":80}", script.nextReply(AdminAppMessageTypes.DEVICE_STATUS));
+    }
+
+    @Test
+    public void repliesWithRandomJsonOfConfiguredSize() {
+        script.setScriptedReply(AdminAppMessageTypes.DEVICE_STATUS, "{}");
+        script.setScriptedReply(AdminAppMessageTypes.DEVICE_STATUS, null);
+        script.setRandomPayloadChars(300);
+
+        String first = script.nextReply(AdminAppMessageTypes.DEVICE_STATUS);
+        String second = script.nextReply(AdminAppMessageTypes.DEVICE_STATUS);
+
+        assertEquals(300, first.length());
+        assertEquals(0, new JSONObject(first).getInt("seq"));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void countsMessagesAndAnalyticsEvents() {
+        script.onReceived(AdminAppMessageTypes.REGISTER_CLIENT, null);
+        script.onReceived(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, "{}");
+        script.onReceived(AdminAppMessageTypes.LOG_ANALYTICS_EVENTS, "[{},{},{}]");
+        script.onReceived(AdminAppMessageTypes.LOG_ANALYTICS_EVENTS, "[{},");
+
+        assertEquals(4, script.getReceivedMessageCount());
+        assertEquals(2, script.getReceivedCount(AdminAppMessageTypes.LOG_ANALYTICS_EVENTS));
+        assertEquals(4, script.getReceivedAnalyticsEventCount());
+        assertEquals(1, script.getInvalidAnalyticsBatchCount());
+
+        script.resetCounts();
+        assertEquals(0, script.getReceivedMessageCount());
+        assertEquals(0, script.getReceivedCount(AdminAppMessageTypes.REGISTER_CLIENT));
+    }
+}
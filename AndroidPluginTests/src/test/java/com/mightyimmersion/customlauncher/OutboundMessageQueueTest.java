@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutboundMessageQueueTest {
+    private FakeClock clock;
+    private OutboundMessageQueue queue;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        queue = new OutboundMessageQueue(clock);
+    }
+
+    @Test
+    public void drainsCommandsInOrderAndAnalyticsLast() {
+        queue.offer(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, "{\"e\":1}", 0);
+        queue.offer(AdminAppMessageTypes.RETRY_APP_DOWNLOADS, null, 0);
+        queue.offer(AdminAppMessageTypes.CONNECT_TO_WIFI_NETWORK, "{}", 0);
+
+        List<OutboundMessageQueue.Entry> drained = queue.drain();
+
+        assertEquals(3, drained.size());
+        assertEquals(AdminAppMessageTypes.RETRY_APP_DOWNLOADS, drained.get(0).what);
+        assertEquals(AdminAppMessageTypes.CONNECT_TO_WIFI_NETWORK, drained.get(1).what);
+        assertEquals(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, drained.get(2).what);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void keepsOnlyLatestHomeScreenState() {
+        queue.offer(AdminAppMessageTypes.HOME_SCREEN_STATE, "{\"state\":1}", 0);
+        queue.offer(AdminAppMessageTypes.HOME_SCREEN_STATE, "{\"state\":2}", 0);
+
+        List<OutboundMessageQueue.Entry> drained = queue.drain();
+
+        assertEquals(1, drained.size());
+        assertEquals("{\"state\":2}", drained.get(0).json);
+    }
+
+    @Test
+    public void queuesRequestsOnce() {
+        assertTrue(queue.offer(AdminAppMessageTypes.GET_DEVICE_STATUS, null, 1));
+        assertTrue(queue.offer(AdminAppMessageTypes.GET_DEVICE_STATUS, null, 2));
+
+        List<OutboundMessageQueue.Entry> drained = queue.drain();
+
+        assertEquals(1, drained.size());
+        assertEquals(1, drained.get(0).requestId);
+    }
+
+    @Test
+    public void rejectsCommandsWhenFull() {
+        int queued = 0;
+        while (queue.offer(AdminAppMessageTypes.RETRY_APP_DOWNLOADS, null, 0)) queued++;
+
+        assertEquals(queued, queue.size());
+        assertEquals(1, queue.getRejectedMessages());
+        // Analytics events are capped separately
+        assertTrue(queue.offer(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, "{}", 0));
+    }
+
+    @Test
+    public void dropsOldestAnalyticsEventOnOverflow() {
+        int offered = 0;
+        while (queue.getDroppedAnalyticsEvents() == 0) {
+            queue.offer(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, "{\"e\":" + offered++ + "}", 0);
+        }
+
+        List<OutboundMessageQueue.Entry> drained = queue.drain();
+
+        assertEquals(offered - 1, drained.size());
+        assertEquals("{\"e\":1}", drained.get(0).json);
+    }
+
+    @Test
+    public void expiresDestructiveCommands() {
+        queue.offer(AdminAppMessageTypes.REBOOT, null, 0);
+        clock.advance(OutboundMessageQueue.DESTRUCTIVE_TTL_MS / 2);
+        queue.offer(AdminAppMessageTypes.KILL_APP, "{}", 0);
+        queue.offer(AdminAppMessageTypes.RETRY_APP_DOWNLOADS, null, 0);
+        clock.advance(OutboundMessageQueue.DESTRUCTIVE_TTL_MS / 2 + 1);
+
+        List<OutboundMessageQueue.Entry> drained = queue.drain();
+
+        assertEquals(2, drained.size());
+        assertEquals(AdminAppMessageTypes.KILL_APP, drained.get(0).what);
+        assertEquals(1, queue.getExpiredMessages());
+    }
+
+    @Test
+    public void requeuesUndeliveredAtTheFront() {
+        queue.offer(AdminAppMessageTypes.RETRY_APP_DOWNLOADS, null, 0);
+        queue.offer(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, "{}", 0);
+        List<OutboundMessageQueue.Entry> drained = queue.drain();
+        queue.offer(AdminAppMessageTypes.CONNECT_TO_WIFI_NETWORK, "{}", 0);
+
+        queue.requeue(drained);
+
+        List<OutboundMessageQueue.Entry> redrained = queue.drain();
+        assertEquals(3, redrained.size());
+        assertEquals(AdminAppMessageTypes.RETRY_APP_DOWNLOADS, redrained.get(0).what);
+        assertEquals(AdminAppMessageTypes.CONNECT_TO_WIFI_NETWORK, redrained.get(1).what);
+        assertEquals(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, redrained.get(2).what);
+        assertEquals(drained.get(0).queuedAt, redrained.get(0).queuedAt);
+    }
+}
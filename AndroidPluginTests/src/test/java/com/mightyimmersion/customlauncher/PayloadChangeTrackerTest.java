@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+package com.mightyimmersion.customlauncher;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadChangeTrackerTest {
+    private final PayloadChangeTracker tracker = new PayloadChangeTracker(
+            AdminAppMessageTypes.DEVICE_STATUS,
+            AdminAppMessageTypes.WIFI_NETWORKS);
+
+    @Test
+    public void dropsRepeatedPayloads() {
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, "{\"battery\":50}"));
+        assertFalse(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, new String("{\"battery\":50}")));
+        assertFalse(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, "{\"battery\":50}"));
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, "{\"battery\":49}"));
+
+        assertEquals(2, tracker.getUnchangedCount(AdminAppMessageTypes.DEVICE_STATUS));
+    }
+
+    @Test
+    public void tracksTypesSeparately() {
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, "{}"));
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.WIFI_NETWORKS, "{}"));
+
+        assertFalse(tracker.onPayload(AdminAppMessageTypes.WIFI_NETWORKS, "{}"));
+        assertEquals(0, tracker.getUnchangedCount(AdminAppMessageTypes.DEVICE_STATUS));
+        assertEquals(1, tracker.getUnchangedCount(AdminAppMessageTypes.WIFI_NETWORKS));
+    }
+
+    @Test
+    public void alwaysPassesUntrackedTypesAndNullPayloads() {
+        assertFalse(tracker.isTracked(AdminAppMessageTypes.DEVICE_DATA));
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_DATA, "{}"));
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_DATA, "{}"));
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, null));
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, null));
+
+        assertEquals(0, tracker.getUnchangedCount(AdminAppMessageTypes.DEVICE_DATA));
+    }
+
+    @Test
+    public void deliversNextPayloadAfterReset() {
+        tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, "{}");
+        tracker.onPayload(AdminAppMessageTypes.WIFI_NETWORKS, "{}");
+
+        tracker.reset(AdminAppMessageTypes.DEVICE_STATUS);
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, "{}"));
+        assertFalse(tracker.onPayload(AdminAppMessageTypes.WIFI_NETWORKS, "{}"));
+
+        tracker.reset();
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.DEVICE_STATUS, "{}"));
+        assertTrue(tracker.onPayload(AdminAppMessageTypes.WIFI_NETWORKS, "{}"));
+    }
+}
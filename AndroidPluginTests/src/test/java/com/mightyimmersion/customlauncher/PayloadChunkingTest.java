@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+package com.mightyimmersion.customlauncher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadChunkingTest {
+    private static final int WHAT = AdminAppMessageTypes.DEVICE_DATA;
+
+    private FakeClock clock;
+    private PayloadChunking.Assembler assembler;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        assembler = new PayloadChunking.Assembler(clock);
+    }
+
+    private static String payload(int chars) {
+        StringBuilder json = new StringBuilder(chars);
+        for (int i = 0; i < chars; i++) json.append((char) ('a' + i % 26));
+        return json.toString();
+    }
+
+    @Test
+    public void splitsIntoChunksOfAtMostChunkChars() {
+        String json = payload(PayloadChunking.CHUNK_CHARS * 2 + 10);
+
+        List<String> chunks = PayloadChunking.split(json, PayloadChunking.CHUNK_CHARS);
+
+        assertEquals(3, chunks.size());
+        assertEquals(PayloadChunking.CHUNK_CHARS, chunks.get(0).length());
+        assertEquals(10, chunks.get(2).length());
+        assertEquals(json, String.join("", chunks));
+    }
+
+    @Test
+    public void neverSplitsSurrogatePairs() {
+        // U+1F600 takes two chars, the pair straddles the first chunk boundary
+        String json = "abc\uD83D\uDE00def";
+
+        List<String> chunks = PayloadChunking.split(json, 4);
+
+        for (String chunk : chunks) {
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)));
+        }
+        assertEquals(json, String.join("", chunks));
+    }
+
+    @Test
+    public void reassemblesChunksInAnyOrder() {
+        String json = payload(1000);
+        List<String> chunks = PayloadChunking.split(json, 300);
+
+        assertNull(assembler.accept(WHAT, 7, 3, chunks.size(), chunks.get(3)));
+        assertNull(assembler.accept(WHAT, 7, 0, chunks.size(), chunks.get(0)));
+        // A repeated chunk is ignored
+        assertNull(assembler.accept(WHAT, 7, 0, chunks.size(), chunks.get(0)));
+        assertNull(assembler.accept(WHAT, 7, 2, chunks.size(), chunks.get(2)));
+        assertEquals(json, assembler.accept(WHAT, 7, 1, chunks.size(), chunks.get(1)));
+        assertEquals(0, assembler.getPendingTransferCount());
+    }
+
+    @Test
+    public void keepsInterleavedTransfersApart() {
+        assertNull(assembler.accept(WHAT, 1, 0, 2, "a"));
+        assertNull(assembler.accept(WHAT, 2, 0, 2, "x"));
+
+        assertEquals("xy", assembler.accept(WHAT, 2, 1, 2, "y"));
+        assertEquals("ab", assembler.accept(WHAT, 1, 1, 2, "b"));
+    }
+
+    @Test
+    public void rejectsInvalidChunks() {
+        assertNull(assembler.accept(WHAT, 1, 2, 2, "a"));
+        assertNull(assembler.accept(WHAT, 1, -1, 2, "a"));
+        assertNull(assembler.accept(WHAT, 1, 0, 0, "a"));
+
+        assertEquals(3, assembler.getInvalidChunkCount());
+        assertEquals(0, assembler.getPendingTransferCount());
+    }
+
+    @Test
+    public void dropsStaleTransfers() {
+        assertNull(assembler.accept(WHAT, 1, 0, 2, "a"));
+        clock.advance(PayloadChunking.Assembler.TRANSFER_TIMEOUT_MS + 1);
+
+        // The late chunk starts over instead of completing the stale transfer
+        assertNull(assembler.accept(WHAT, 1, 1, 2, "b"));
+        assertEquals(1, assembler.getDroppedTransferCount());
+        assertEquals(1, assembler.getPendingTransferCount());
+    }
+
+    @Test
+    public void dropsOldestTransferWhenTooMany() {
+        for (int id = 0; id < PayloadChunking.Assembler.MAX_TRANSFERS; id++) {
+            assertNull(assembler.accept(WHAT, id, 0, 2, "a"));
+            clock.advance(1);
+        }
+
+        assertNull(assembler.accept(WHAT, 100, 0, 2, "a"));
+
+        assertEquals(1, assembler.getDroppedTransferCount());
+        assertEquals(PayloadChunking.Assembler.MAX_TRANSFERS, assembler.getPendingTransferCount());
+        // Transfer 0 was the oldest, its last chunk starts a new transfer
+        assertNull(assembler.accept(WHAT, 0, 1, 2, "b"));
+        assertTrue(assembler.getDroppedTransferCount() > 1);
+    }
+}
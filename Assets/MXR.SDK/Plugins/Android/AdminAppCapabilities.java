@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import android.os.Bundle;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Protocol features negotiated with the admin app. The client advertises what it supports in the
+ * REGISTER_CLIENT Bundle, and the admin app answers with the same keys on any message it sends back.
+ * An admin app that never answers is treated as LEGACY: json payloads and one message per event.
+ */
+public class AdminAppCapabilities {
+    // This should be in sync with MightyLibrary
+    static final String KEY_PROTOCOL_VERSION = "protocolVersion";
+    static final String KEY_ENCODINGS = "encodings";
+    static final String KEY_CAPABILITIES = "capabilities";
+
+    public static final int PROTOCOL_VERSION = 2;
+
+    // Payload as a json string under the "json" key, the only encoding so far. Listed so the admin
+    // app can pick another one once both sides support it.
+    public static final String ENCODING_JSON = "json";
+
+    // Accepts LOG_ANALYTICS_EVENTS
+    public static final String CAPABILITY_ANALYTICS_BATCH = "analyticsBatch";
+    // Sends and reassembles large payloads in chunks, see PayloadChunking
+    public static final String CAPABILITY_CHUNKED_TRANSFER = "chunkedTransfer";
+
+    static final String[] CLIENT_ENCODINGS = { ENCODING_JSON };
+    static final String[] CLIENT_CAPABILITIES = { CAPABILITY_ANALYTICS_BATCH, CAPABILITY_CHUNKED_TRANSFER };
+
+    public static final AdminAppCapabilities LEGACY = new AdminAppCapabilities(1, new String[]{ ENCODING_JSON }, new String[0]);
+
+    public final int protocolVersion;
+    private final Set<String> encodings;
+    private final Set<String> capabilities;
+
+    AdminAppCapabilities(int _protocolVersion, String[] _encodings, String[] _capabilities) {
+        protocolVersion = _protocolVersion;
+        encodings = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(_encodings)));
+        capabilities = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(_capabilities)));
+    }
+
+    /**
+     * Reads the capabilities the admin app advertised in a message, or null if it advertised none
+     */
+    static AdminAppCapabilities fromBundle(Bundle bundle) {
+        if (bundle == null || !bundle.containsKey(KEY_PROTOCOL_VERSION)) return null;
+
+        String[] encodings = bundle.getStringArray(KEY_ENCODINGS);
+        String[] capabilities = bundle.getStringArray(KEY_CAPABILITIES);
+        return new AdminAppCapabilities(
+                bundle.getInt(KEY_PROTOCOL_VERSION),
+                encodings != null ? encodings : new String[]{ ENCODING_JSON },
+                capabilities != null ? capabilities : new String[0]);
+    }
+
+    /**
+     * Adds what this client supports to an outgoing Bundle
+     */
+    static void writeClientCapabilities(Bundle bundle) {
+        bundle.putInt(KEY_PROTOCOL_VERSION, PROTOCOL_VERSION);
+        bundle.putStringArray(KEY_ENCODINGS, CLIENT_ENCODINGS);
+        bundle.putStringArray(KEY_CAPABILITIES, CLIENT_CAPABILITIES);
+    }
+
+    public boolean supportsEncoding(String encoding) {
+        return encodings.contains(encoding);
+    }
+
+    public boolean has(String capability) {
+        return capabilities.contains(capability);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + protocolVersion + " encodings=" + encodings + " capabilities=" + capabilities;
+    }
+}
@@ -64,4 +64,22 @@ public class AdminAppMessageTypes {
     public static final int RETRY_APP_DOWNLOADS = 26;
 
     public static final int LOG_ANALYTICS_EVENT = 29;
+
+    // Json array of analytics events, see AnalyticsEventBatcher. Only send to admin app versions that support it.
+    public static final int LOG_ANALYTICS_EVENTS = 30;
+
+    /**
+     * Returns the message type the admin app replies with for a request, or -1 if it does not reply.
+     */
+    public static int replyTypeFor(int what) {
+        switch (what) {
+            case GET_WIFI_NETWORKS: return WIFI_NETWORKS;
+            case GET_WIFI_CONNECTION_STATUS: return WIFI_CONNECTION_STATUS;
+            case GET_RUNTIME_SETTINGS: return RUNTIME_SETTINGS;
+            case GET_DEVICE_STATUS: return DEVICE_STATUS;
+            case GET_DEVICE_DATA: return DEVICE_DATA;
+            case GET_CASTING_CODE: return CASTING_CODE;
+            default: return -1;
+        }
+    }
 }
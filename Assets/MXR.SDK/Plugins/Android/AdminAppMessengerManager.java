@@ -8,6 +8,8 @@
 
 package com.mightyimmersion.customlauncher;
 
+import android.app.Activity;
+import android.app.Application;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
@@ -15,14 +17,21 @@ import android.content.ServiceConnection;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.IBinder;
 import android.os.Message;
 import android.os.Messenger;
 import android.os.RemoteException;
+import android.os.SystemClock;
+import android.os.TransactionTooLargeException;
 import android.util.Log;
+import android.util.SparseArray;
+import java.util.ArrayList;
 import java.util.List;
-import java.lang.StringBuilder;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONException;
 
 public class AdminAppMessengerManager {
     public interface  AdminAppMessengerListener {
@@ -30,53 +39,271 @@ public class AdminAppMessengerManager {
         void onMessageFromAdminApp(int what, String json);
     }
 
+    /**
+     * Runs on the IPC thread before a message reaches the listener, so expensive payloads can be
+     * inspected or parsed off the main thread. Return false to keep the message from the listener.
+     * Pending requests are still completed for filtered messages.
+     */
+    public interface MessageFilter {
+        boolean shouldDeliver(int what, String json);
+    }
+
     static final String TAG = "AdminAppMessengerManager";
 
-    private final Messenger incomingMessenger = new Messenger(new IncomingMessageHandler(Looper.getMainLooper()));
-    private Messenger outgoingMessenger;
-    private boolean bound;
+    static final String IPC_THREAD_NAME = "MXR-AdminIPC";
+
+    // Incoming messages, binding and timers all run on one IPC looper, off the main thread.
+    // Only the listener callbacks leave it.
+    private final HandlerThread ipcThread;
+    private final Handler ipcHandler;
+    private final Messenger incomingMessenger;
+    private volatile Messenger outgoingMessenger;
+    private volatile boolean bound;
+    private volatile MessageFilter messageFilter;
+    private volatile AdminAppCapabilities adminCapabilities = AdminAppCapabilities.LEGACY;
     private Context context;
     private AdminAppMessengerListener listener;
     private NativeUtils nativeUtils;
+    private final PackageChangeReceiver.OnPackagesChangedListener packageChangeListener = this::onPackagesChanged;
+    private Application.ActivityLifecycleCallbacks lifecycleCallbacks;
+
+    // Binding is event driven: package changes and ServiceConnection callbacks trigger immediate
+    // attempts. The retry timer only runs while unbound, backing off exponentially between attempts.
+    // Sending while unbound only makes sure a retry is pending, it does not add attempts.
+    private static final long MIN_BIND_RETRY_DELAY_MS = 250;
+    private static final long MAX_BIND_RETRY_DELAY_MS = 60_000; // 1 minute
+    private long bindRetryDelayMs = MIN_BIND_RETRY_DELAY_MS;
+    private boolean bindRetryPending;
+    private boolean bindRequested;
+    private long bindStartNanos;
+    private final Runnable bindRetryRunnable = () -> {
+        bindRetryPending = false;
+        tryBindToAdminService();
+    };
+
+    // Set while talking to an in-process stand-in of the admin service instead of the admin app,
+    // see connectToLocalService. Binding to the admin app is suspended meanwhile. IPC thread only.
+    private boolean localService;
 
-    private int checkBindingFrequency = 10_000; // 10 seconds
-    private Handler checkBindingHandler = new Handler(Looper.getMainLooper());
+    // Requests awaiting a reply, keyed by reply type. Identical requests made while one is
+    // pending share it instead of sending another message.
+    public static final long DEFAULT_REQUEST_TIMEOUT_MS = 5_000;
+    private final SparseArray<AdminAppRequest> pendingRequests = new SparseArray<>();
+    private final AtomicInteger nextRequestId = new AtomicInteger(1);
+
+    // Messages sent while unbound, or while earlier ones are still queued, wait here and are
+    // delivered in order from the IPC thread. sendLock keeps direct sends from overtaking a flush.
+    private final OutboundMessageQueue outboundQueue = new OutboundMessageQueue(SystemClock::elapsedRealtime);
+    private final Object sendLock = new Object();
+
+    // While enabled, analytics events are sent in batches as LOG_ANALYTICS_EVENTS instead of one
+    // LOG_ANALYTICS_EVENT message each, as long as the connected admin app advertises analyticsBatch
+    private volatile boolean analyticsBatchingEnabled = true;
+    private final AnalyticsEventBatcher analyticsBatcher;
+
+    // Json files the admin app writes, reported to the listener like messages of the same type
+    private final JsonFileService fileService;
+
+    // Large payloads are split over several messages when the admin app supports it, see PayloadChunking
+    private final PayloadChunking.Assembler incomingChunks = new PayloadChunking.Assembler(SystemClock::elapsedRealtime);
+    private final AtomicInteger nextChunkId = new AtomicInteger(1);
+    private final MessageSizeStats incomingSizes = new MessageSizeStats();
+    private final MessageSizeStats outgoingSizes = new MessageSizeStats();
+
+    // Periodic status payloads are usually identical to the previous one, those never reach the listener
+    private final PayloadChangeTracker payloadChangeTracker = new PayloadChangeTracker(
+            AdminAppMessageTypes.WIFI_NETWORKS,
+            AdminAppMessageTypes.WIFI_CONNECTION_STATUS,
+            AdminAppMessageTypes.RUNTIME_SETTINGS,
+            AdminAppMessageTypes.DEVICE_STATUS,
+            AdminAppMessageTypes.DEVICE_DATA);
 
     public AdminAppMessengerManager(Context _context, AdminAppMessengerListener _listener, NativeUtils _nativeUtils) {
+        this(_context, _listener, _nativeUtils, null);
+    }
+
+    /**
+     * @param _ipcLooper Looper that handles incoming messages and binding work. When null, a dedicated
+     *                   thread is started, which release() stops.
+     */
+    public AdminAppMessengerManager(Context _context, AdminAppMessengerListener _listener, NativeUtils _nativeUtils, Looper _ipcLooper) {
         context = _context;
         listener = _listener;
         nativeUtils = _nativeUtils;
-        checkBindingHandler.post(this::startBindToAdminServiceLoop);
+
+        if (_ipcLooper == null) {
+            ipcThread = new HandlerThread(IPC_THREAD_NAME);
+            ipcThread.start();
+            _ipcLooper = ipcThread.getLooper();
+        } else {
+            ipcThread = null;
+        }
+        ipcHandler = new Handler(_ipcLooper);
+        incomingMessenger = new Messenger(new IncomingMessageHandler(_ipcLooper));
+        analyticsBatcher = new AnalyticsEventBatcher(this::sendAnalyticsBatch, schedulerFor(ipcHandler));
+        fileService = new JsonFileService(ipcHandler, this::dispatchToListener);
+
+        nativeUtils.addOnPackagesChangedListener(packageChangeListener);
+        registerActivityLifecycleCallbacks();
+        startBindToAdminServiceLoop();
     }
 
-    public void startBindToAdminServiceLoop() {
-        bindToAdminServiceLoop();
+    /**
+     * Sets the filter applied to incoming messages on the IPC thread, or null to deliver everything.
+     */
+    public void setMessageFilter(MessageFilter filter) {
+        messageFilter = filter;
+    }
+
+    /**
+     * Number of messages of a type that were not passed to the listener because their payload
+     * was identical to the previous one
+     */
+    public int getUnchangedPayloadCount(int what) {
+        return payloadChangeTracker.getUnchangedCount(what);
+    }
+
+    /**
+     * Makes the next payload of every type reach the listener, even if unchanged. Use this when
+     * the listener lost its state, e.g. after being recreated.
+     */
+    public void resetPayloadCache() {
+        payloadChangeTracker.reset();
+    }
+
+    /**
+     * Reports later changes of a json file written by the admin app to the listener, as a message
+     * of type what (e.g. DEVICE_STATUS for deviceStatus.json). Unchanged contents are dropped just
+     * like unchanged messages. Returns false if the directory of the file does not exist.
+     */
+    public boolean watchJsonFile(int what, String path) {
+        return fileService.watch(what, path);
+    }
+
+    public void unwatchJsonFile(String path) {
+        fileService.unwatch(path);
     }
 
-    private void bindToAdminServiceLoop() {
+    /**
+     * The looper incoming admin app messages are handled on
+     */
+    public Looper getIpcLooper() {
+        return ipcHandler.getLooper();
+    }
+
+    /**
+     * Flushes buffered analytics, unbinds and stops the IPC thread if this instance started it.
+     */
+    public void release() {
+        fileService.unwatchAll();
+        nativeUtils.removeOnPackagesChangedListener(packageChangeListener);
+        if (lifecycleCallbacks != null) {
+            ((Application) context.getApplicationContext()).unregisterActivityLifecycleCallbacks(lifecycleCallbacks);
+            lifecycleCallbacks = null;
+        }
+        ipcHandler.post(() -> {
+            flushAnalyticsEvents();
+            ipcHandler.removeCallbacksAndMessages(null);
+            if (bound) deliver(AdminAppMessageTypes.UNREGISTER_CLIENT, null, 0);
+            outgoingMessenger = null;
+            bound = false;
+            unbindFromAdminService();
+            failPendingRequests();
+            if (ipcThread != null) ipcThread.quitSafely();
+        });
+    }
+
+    private void registerActivityLifecycleCallbacks() {
+        Context applicationContext = context.getApplicationContext();
+        if (!(applicationContext instanceof Application)) return;
+
+        lifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+            // The process may be killed any time after pausing, so don't leave events buffered
+            @Override public void onActivityPaused(Activity activity) { flushAnalyticsEvents(); }
+            @Override public void onActivityCreated(Activity activity, Bundle savedInstanceState) { }
+            @Override public void onActivityStarted(Activity activity) { }
+            @Override public void onActivityResumed(Activity activity) { }
+            @Override public void onActivityStopped(Activity activity) { }
+            @Override public void onActivitySaveInstanceState(Activity activity, Bundle outState) { }
+            @Override public void onActivityDestroyed(Activity activity) { }
+        };
+        ((Application) applicationContext).registerActivityLifecycleCallbacks(lifecycleCallbacks);
+    }
+
+    /**
+     * Starts admin service discovery with a fresh backoff, on the IPC thread. Discovery stops on its own
+     * once bound and resumes when the binding is lost.
+     */
+    public void startBindToAdminServiceLoop() {
+        if (Looper.myLooper() != ipcHandler.getLooper()) {
+            ipcHandler.post(this::startBindToAdminServiceLoop);
+            return;
+        }
+        bindRetryDelayMs = MIN_BIND_RETRY_DELAY_MS;
         tryBindToAdminService();
-        checkBindingHandler.postDelayed(this::bindToAdminServiceLoop, checkBindingFrequency);
     }
 
     private void tryBindToAdminService() {
         Log.v(TAG, "tryBindToAdminService. Already bound? = " + bound);
-        if (bound) return;
+        cancelBindRetry();
+        if (bound || localService) return;
 
         ComponentName adminServiceComponent = getInstalledAdminServiceComponent();
         if (adminServiceComponent != null) {
             launchAdminAppServiceIfNeeded(adminServiceComponent);
-            Intent bindIntent = new Intent();
-            bindIntent.setComponent(adminServiceComponent);
-            // This will bind to the service whether or not it is running. As soon as the service is started
-            // The onServiceConnected method will fire.
-            context.bindService(bindIntent, mConnection, 0);
+            if (!bindRequested) {
+                Intent bindIntent = new Intent();
+                bindIntent.setComponent(adminServiceComponent);
+                bindStartNanos = MXRMetrics.start();
+                // This will bind to the service whether or not it is running. As soon as the service is started
+                // The onServiceConnected method will fire.
+                bindRequested = context.bindService(bindIntent, mConnection, 0);
+            }
         } else {
             Log.v(TAG, "ManageXR Admin App not installed!");
         }
+        scheduleBindRetry();
+    }
+
+    private void scheduleBindRetry() {
+        cancelBindRetry();
+        if (bound || localService) return;
+
+        ipcHandler.postDelayed(bindRetryRunnable, bindRetryDelayMs);
+        bindRetryPending = true;
+        bindRetryDelayMs = Math.min(bindRetryDelayMs * 2, MAX_BIND_RETRY_DELAY_MS);
+    }
+
+    private void cancelBindRetry() {
+        ipcHandler.removeCallbacks(bindRetryRunnable);
+        bindRetryPending = false;
+    }
+
+    private void retryBindNow() {
+        bindRetryDelayMs = MIN_BIND_RETRY_DELAY_MS;
+        tryBindToAdminService();
+    }
+
+    private void onPackagesChanged(List<PackageChange> changes) {
+        if (bound) return;
+        for (PackageChange change : changes) {
+            // An install or update may have made the admin service (re)available
+            if (PackageIndex.isAdminAppPackage(change.packageName)) {
+                ipcHandler.post(this::retryBindNow);
+                return;
+            }
+        }
     }
 
     private void unbindFromAdminService() {
-        context.unbindService(mConnection);
+        bindRequested = false;
+        long start = MXRMetrics.start();
+        try {
+            context.unbindService(mConnection);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "unbindFromAdminService: " + e.getMessage());
+        }
+        MXRMetrics.recordSince("ipc.unbindUs", start);
     }
 
     class IncomingMessageHandler extends Handler {
@@ -86,56 +313,299 @@ public class AdminAppMessengerManager {
 
         @Override
         public void handleMessage(Message msg) {
+            long start = MXRMetrics.start();
+            MXRMetrics.count("ipc.receive", msg.what);
             Bundle bundle = msg.getData();
-            listener.onMessageFromAdminApp(msg.what, bundle.getString("json", null));
+            AdminAppCapabilities capabilities = AdminAppCapabilities.fromBundle(bundle);
+            if (capabilities != null) onAdminCapabilities(capabilities);
+
+            String json;
+            if (AdminAppPayloadCodec.isChunk(bundle)) {
+                json = AdminAppPayloadCodec.acceptChunk(incomingChunks, msg.what, bundle);
+                // Wait for the remaining chunks
+                if (json == null) return;
+                incomingSizes.record(msg.what, json.length(), true);
+            } else {
+                json = AdminAppPayloadCodec.readJson(bundle);
+                if (json != null) incomingSizes.record(msg.what, json.length(), false);
+            }
+            if (msg.what == AdminAppMessageTypes.PREPARE_FOR_TERMINATION) {
+                // Hand over buffered events while the admin app still listens
+                flushAnalyticsEvents();
+            }
+
+            dispatchToListener(msg.what, json);
+            completePendingRequest(msg.what, json);
+            MXRMetrics.recordSince("ipc.handleUs", msg.what, start);
+        }
+    }
+
+    private void dispatchToListener(int what, String json) {
+        boolean deliver = payloadChangeTracker.onPayload(what, json);
+        MessageFilter filter = messageFilter;
+        if (deliver && filter != null) {
+            try {
+                deliver = filter.shouldDeliver(what, json);
+            } catch (Exception e) {
+                Log.e(TAG, "MessageFilter failed for " + what + ": " + e);
+            }
         }
+        if (deliver) listener.onMessageFromAdminApp(what, json);
+    }
+
+    private void onAdminCapabilities(AdminAppCapabilities capabilities) {
+        Log.v(TAG, "Admin app capabilities: " + capabilities);
+        adminCapabilities = capabilities;
+        // Events buffered for a batch go out one by one to an admin app without batch support
+        if (!capabilities.has(AdminAppCapabilities.CAPABILITY_ANALYTICS_BATCH)) analyticsBatcher.flush();
+    }
+
+    /**
+     * What the connected admin app advertised, LEGACY until it advertises anything
+     */
+    public AdminAppCapabilities getAdminAppCapabilities() {
+        return adminCapabilities;
     }
 
+    // ServiceConnection callbacks arrive on the main thread, they are forwarded to the IPC thread.
+    // Callbacks of an admin app binding that was dropped for a local service are ignored.
     private ServiceConnection mConnection = new ServiceConnection() {
         public void onServiceConnected(ComponentName className, IBinder service) {
-            Log.v(TAG, "onServiceConnected");
-            outgoingMessenger = new Messenger(service);
-            bound = true;
-            boolean registeredAsClient = registerAsClient();
-            if (registeredAsClient) {
-                Log.v(TAG, "Registered as client");
-                listener.onBindStatusToAdminAppChanged(true);
-            } else {
-                Log.e(TAG, "Failed to register as client. Unbinding...");
-                unbindFromAdminService();
-            }
+            ipcHandler.post(() -> {
+                if (!localService) handleServiceConnected(service);
+            });
         }
 
         public void onServiceDisconnected(ComponentName className) {
-            Log.v(TAG, "onServiceDisconnected");
+            ipcHandler.post(() -> {
+                if (!localService) handleServiceDisconnected();
+            });
+        }
+
+        // API 28+: the binding will never reconnect, e.g. the admin app was updated or removed
+        public void onBindingDied(ComponentName className) {
+            ipcHandler.post(() -> {
+                if (!localService) handleBindingDied();
+            });
+        }
+
+        // API 26+: the admin service refused the binding
+        public void onNullBinding(ComponentName className) {
+            ipcHandler.post(() -> {
+                if (!localService) handleNullBinding();
+            });
+        }
+    };
+
+    /**
+     * Talks to an in-process stand-in of the admin service instead of the admin app, e.g. a
+     * LoopbackAdminService, through the same registration, queueing and delivery path. Any admin app
+     * binding is dropped and binding stays suspended until resumeAdminAppBinding(). Package-private,
+     * only the development harnesses in Development/ use it.
+     */
+    void connectToLocalService(IBinder service) {
+        ipcHandler.post(() -> {
+            if (bound) {
+                deliver(AdminAppMessageTypes.UNREGISTER_CLIENT, null, 0);
+                onConnectionLost();
+                listener.onBindStatusToAdminAppChanged(false);
+            }
+            localService = true;
+            cancelBindRetry();
+            if (bindRequested) unbindFromAdminService();
+            bindStartNanos = MXRMetrics.start();
+            handleServiceConnected(service);
+        });
+    }
+
+    /**
+     * Drops the connection to the local service as if it crashed. Messages sent meanwhile are queued
+     * until the next connectToLocalService, like while the admin app restarts.
+     */
+    void disconnectFromLocalService() {
+        ipcHandler.post(() -> {
+            if (!localService || !bound) return;
+            MXRMetrics.count("ipc.disconnected");
+            onConnectionLost();
+            listener.onBindStatusToAdminAppChanged(false);
+        });
+    }
+
+    /**
+     * Leaves local service mode and binds to the admin app again
+     */
+    void resumeAdminAppBinding() {
+        ipcHandler.post(() -> {
+            if (!localService) return;
+            if (bound) {
+                deliver(AdminAppMessageTypes.UNREGISTER_CLIENT, null, 0);
+                onConnectionLost();
+                listener.onBindStatusToAdminAppChanged(false);
+            }
+            localService = false;
+            retryBindNow();
+        });
+    }
+
+    private void handleServiceConnected(IBinder service) {
+        Log.v(TAG, "onServiceConnected");
+        MXRMetrics.recordSince("ipc.bindUs", bindStartNanos);
+        cancelBindRetry();
+        outgoingMessenger = new Messenger(service);
+        bound = true;
+        boolean registeredAsClient = registerAsClient();
+        if (registeredAsClient) {
+            Log.v(TAG, "Registered as client");
+            bindRetryDelayMs = MIN_BIND_RETRY_DELAY_MS;
+            flushOutboundQueue();
+            listener.onBindStatusToAdminAppChanged(true);
+        } else {
+            Log.e(TAG, "Failed to register as client. Unbinding...");
             outgoingMessenger = null;
             bound = false;
-            listener.onBindStatusToAdminAppChanged(false);
+            unbindFromAdminService();
+            scheduleBindRetry();
         }
-    };
+    }
+
+    private void handleServiceDisconnected() {
+        Log.v(TAG, "onServiceDisconnected");
+        MXRMetrics.count("ipc.disconnected");
+        // A failed send may have noticed first, see onPeerDied
+        boolean wasBound = bound;
+        onConnectionLost();
+        if (wasBound) listener.onBindStatusToAdminAppChanged(false);
+        // The binding stays registered and reconnects when the service restarts,
+        // retrying only relaunches the service in case nothing else does.
+        retryBindNow();
+    }
+
+    private void handleBindingDied() {
+        Log.v(TAG, "onBindingDied");
+        MXRMetrics.count("ipc.bindingDied");
+        boolean wasBound = bound;
+        onConnectionLost();
+        unbindFromAdminService();
+        nativeUtils.invalidateAdminAppCache();
+        if (wasBound) listener.onBindStatusToAdminAppChanged(false);
+        retryBindNow();
+    }
+
+    private void onConnectionLost() {
+        outgoingMessenger = null;
+        bound = false;
+        adminCapabilities = AdminAppCapabilities.LEGACY;
+        incomingChunks.clear();
+        failPendingRequests();
+        // The next admin app may not accept batches, queue the buffered events one by one
+        analyticsBatcher.flush();
+    }
+
+    private void handleNullBinding() {
+        Log.w(TAG, "onNullBinding");
+        MXRMetrics.count("ipc.nullBinding");
+        unbindFromAdminService();
+        scheduleBindRetry();
+    }
+
+    /**
+     * Sends a request that the admin app replies to (see AdminAppMessageTypes.replyTypeFor) and returns
+     * a handle that resolves with the reply. If the same request is already awaiting its reply, that
+     * request is returned and no message is sent. The message carries the request id in arg1 and
+     * in the "requestId" Bundle key. The reply reaches the listener even if its payload is unchanged.
+     */
+    public AdminAppRequest request(int what) {
+        return request(what, DEFAULT_REQUEST_TIMEOUT_MS);
+    }
+
+    public AdminAppRequest request(int what, long timeoutMs) {
+        int replyWhat = AdminAppMessageTypes.replyTypeFor(what);
+        if (replyWhat == -1) {
+            throw new IllegalArgumentException("Message type " + what + " has no reply");
+        }
+
+        AdminAppRequest request;
+        synchronized (pendingRequests) {
+            AdminAppRequest pending = pendingRequests.get(replyWhat);
+            if (pending != null && !pending.isDone()) return pending;
+
+            request = new AdminAppRequest(nextRequestId.getAndIncrement(), what, replyWhat);
+            pendingRequests.put(replyWhat, request);
+        }
+        // The caller asked for the current state, so don't drop the reply as a duplicate
+        payloadChangeTracker.reset(replyWhat);
+
+        long startNanos = MXRMetrics.start();
+        if (!sendMessage(what, null, request.requestId)) {
+            removePendingRequest(request);
+            request.fail();
+            return request;
+        }
+
+        ipcHandler.postDelayed(() -> {
+            if (request.timeout()) {
+                Log.w(TAG, "Request " + request.requestId + " (" + what + ") timed out");
+                MXRMetrics.count("ipc.requestTimeout", what);
+                removePendingRequest(request);
+            }
+        }, timeoutMs);
+        if (startNanos != 0) {
+            request.addOnCompleteListener(completed -> {
+                if (completed.getState() == AdminAppRequest.COMPLETED) MXRMetrics.recordSince("ipc.roundTripUs", what, startNanos);
+            });
+        }
+        return request;
+    }
+
+    private void removePendingRequest(AdminAppRequest request) {
+        synchronized (pendingRequests) {
+            if (pendingRequests.get(request.replyWhat) == request) pendingRequests.remove(request.replyWhat);
+        }
+    }
+
+    private void completePendingRequest(int what, String json) {
+        AdminAppRequest request;
+        synchronized (pendingRequests) {
+            request = pendingRequests.get(what);
+            if (request == null) return;
+            pendingRequests.remove(what);
+        }
+        request.complete(json);
+    }
+
+    private void failPendingRequests() {
+        List<AdminAppRequest> requests = new ArrayList<>();
+        synchronized (pendingRequests) {
+            for (int i = 0; i < pendingRequests.size(); i++) requests.add(pendingRequests.valueAt(i));
+            pendingRequests.clear();
+        }
+        for (AdminAppRequest request : requests) request.fail();
+    }
 
     private boolean registerAsClient() {
-        return sendMessage(AdminAppMessageTypes.REGISTER_CLIENT);
+        Bundle bundle = new Bundle();
+        AdminAppCapabilities.writeClientCapabilities(bundle);
+        return deliver(AdminAppMessageTypes.REGISTER_CLIENT, bundle);
     }
 
     public boolean getWifiNetworksAsync() {
-        return sendMessage(AdminAppMessageTypes.GET_WIFI_NETWORKS);
+        return request(AdminAppMessageTypes.GET_WIFI_NETWORKS).getState() != AdminAppRequest.FAILED;
     }
 
     public boolean getWifiConnectionStatusAsync() {
-        return sendMessage(AdminAppMessageTypes.GET_WIFI_CONNECTION_STATUS);
+        return request(AdminAppMessageTypes.GET_WIFI_CONNECTION_STATUS).getState() != AdminAppRequest.FAILED;
     }
 
     public boolean getRuntimeSettingsAsync() {
-        return sendMessage(AdminAppMessageTypes.GET_RUNTIME_SETTINGS);
+        return request(AdminAppMessageTypes.GET_RUNTIME_SETTINGS).getState() != AdminAppRequest.FAILED;
     }
 
     public boolean getDeviceStatusAsync() {
-        return sendMessage(AdminAppMessageTypes.GET_DEVICE_STATUS);
+        return request(AdminAppMessageTypes.GET_DEVICE_STATUS).getState() != AdminAppRequest.FAILED;
     }
 
     public boolean getDeviceDataAsync() {
-        return sendMessage(AdminAppMessageTypes.GET_DEVICE_DATA);
+        return request(AdminAppMessageTypes.GET_DEVICE_DATA).getState() != AdminAppRequest.FAILED;
     }
 
     public boolean enableKioskModeAsync() {
@@ -147,7 +617,7 @@ public class AdminAppMessengerManager {
     }
 
     public boolean overrideKioskAppAsync(String packageName) {
-        return sendMessage(AdminAppMessageTypes.OVERRIDE_KIOSK_APP, "{\"packageName\":\""+packageName+"\"}");
+        return sendStringField(AdminAppMessageTypes.OVERRIDE_KIOSK_APP, "packageName", packageName);
     }
 
     public boolean exitLauncherAsync() {
@@ -155,35 +625,28 @@ public class AdminAppMessengerManager {
     }
 
     public boolean killApp(String packageName) {
-        return sendMessage(AdminAppMessageTypes.KILL_APP, "{\"packageName\":\""+packageName+"\"}");
+        return sendStringField(AdminAppMessageTypes.KILL_APP, "packageName", packageName);
     }
 
     public boolean retryAppDownload(String packageName) {
-        return sendMessage(AdminAppMessageTypes.RETRY_APP_DOWNLOAD, "{\"packageName\":\""+packageName+"\"}");
+        return sendStringField(AdminAppMessageTypes.RETRY_APP_DOWNLOAD, "packageName", packageName);
     }
 
     public boolean retryAppDownloads(List<String> packageNames) {
-        StringBuilder payload = new StringBuilder();
-        payload.append("{\"packageNames\":[");
-
-        for (int i = 0; i < packageNames.size(); i++) {
-            payload.append("\"").append(packageNames.get(i)).append("\"");
-
-            if (i < packageNames.size() - 1) {
-                payload.append(",");
-            }
-        }
-
-        payload.append("]}");
+        return retryAppDownloads(packageNames.toArray(new String[0]));
+    }
 
-        return sendMessage(
-            AdminAppMessageTypes.RETRY_APP_DOWNLOADS,
-            payload.toString()
-        );
+    public boolean retryAppDownloads(String[] packageNames) {
+        String payload = JsonPayloadWriter.obtain()
+                .beginObject()
+                .name("packageNames").value(packageNames)
+                .endObject()
+                .build();
+        return sendMessage(AdminAppMessageTypes.RETRY_APP_DOWNLOADS, payload);
     }
 
     public boolean restartApp(String packageName) {
-        return sendMessage(AdminAppMessageTypes.RESTART_APP, "{\"packageName\":\""+packageName+"\"}");
+        return sendStringField(AdminAppMessageTypes.RESTART_APP, "packageName", packageName);
     }
 
     public boolean shutdown() {
@@ -216,7 +679,13 @@ public class AdminAppMessengerManager {
 
     public boolean connectToWifiNetworkAsync(String ssid, String password) {
         if (password == null) password = "";
-        return sendMessage(AdminAppMessageTypes.CONNECT_TO_WIFI_NETWORK, "{\"ssid\": \""+ssid+"\", \"password\":\""+password+"\" }");
+        String payload = JsonPayloadWriter.obtain()
+                .beginObject()
+                .name("ssid").value(ssid)
+                .name("password").value(password)
+                .endObject()
+                .build();
+        return sendMessage(AdminAppMessageTypes.CONNECT_TO_WIFI_NETWORK, payload);
     }
 
     public boolean connectToEnterpriseWifiNetworkAsync(String requestJson) {
@@ -224,7 +693,7 @@ public class AdminAppMessengerManager {
     }
 
     public boolean forgetWifiNetworkAsync(String ssid) {
-        return sendMessage(AdminAppMessageTypes.FORGET_WIFI_NETWORK, "{\"ssid\":\""+ssid+"\"}");
+        return sendStringField(AdminAppMessageTypes.FORGET_WIFI_NETWORK, "ssid", ssid);
     }
 
     public boolean sendHomeScreenState(String stateJson) {
@@ -232,7 +701,7 @@ public class AdminAppMessengerManager {
     }
     
     public boolean requestCastingCodeAsync() {
-        return sendMessage(AdminAppMessageTypes.GET_CASTING_CODE);
+        return request(AdminAppMessageTypes.GET_CASTING_CODE).getState() != AdminAppRequest.FAILED;
     }
     
     public boolean stopCastingAsync() {
@@ -243,38 +712,328 @@ public class AdminAppMessengerManager {
         return sendMessage(AdminAppMessageTypes.UPLOAD_DEVICE_LOGS);
     }
 
+    /**
+     * Sends an analytics event, batched while the connected admin app accepts batches. Returns false
+     * when an event was dropped: this one because it could not be sent or queued, or the oldest
+     * buffered one because the batch buffer was full. See getDroppedAnalyticsEventCount.
+     */
     public boolean sendAnalyticsEventAsync(String eventJson) {
+        if (canSendAnalyticsBatch()) {
+            if (AnalyticsEventBatcher.isValidEvent(eventJson)) return analyticsBatcher.add(eventJson);
+            // Sent on its own, so it cannot make a whole batch unreadable
+            Log.w(TAG, "Analytics event is not a json object, sending it unbatched");
+            MXRMetrics.count("analytics.invalidEvent");
+        }
         return sendMessage(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, eventJson);
     }
 
+    /**
+     * Enables sending analytics events in batches, which is the default. Batches are only sent while
+     * the connected admin app advertises AdminAppCapabilities.CAPABILITY_ANALYTICS_BATCH, events
+     * are sent one by one otherwise. Disabling it flushes the events buffered so far.
+     */
+    public void setAnalyticsBatchingEnabled(boolean enabled) {
+        analyticsBatchingEnabled = enabled;
+        if (!enabled) flushAnalyticsEvents();
+    }
+
+    public boolean isAnalyticsBatchingEnabled() {
+        return analyticsBatchingEnabled;
+    }
+
+    private boolean canSendAnalyticsBatch() {
+        return analyticsBatchingEnabled && bound && adminCapabilities.has(AdminAppCapabilities.CAPABILITY_ANALYTICS_BATCH);
+    }
+
+    /**
+     * Sends all buffered analytics events now. Batches are only sent from the IPC thread so they
+     * stay in order, from other threads this posts the flush there.
+     */
+    public void flushAnalyticsEvents() {
+        if (Looper.myLooper() != ipcHandler.getLooper()) {
+            ipcHandler.post(this::flushAnalyticsEvents);
+            return;
+        }
+        analyticsBatcher.flush();
+    }
+
+    private boolean sendAnalyticsBatch(String eventsJson, int eventCount) {
+        if (queueAnalyticsBatch(eventsJson)) return true;
+        Log.w(TAG, "Dropped a batch of " + eventCount + " analytics events");
+        return false;
+    }
+
+    private boolean queueAnalyticsBatch(String eventsJson) {
+        if (canSendAnalyticsBatch()) return sendMessage(AdminAppMessageTypes.LOG_ANALYTICS_EVENTS, eventsJson);
+
+        // Batching stopped while these were buffered, e.g. the connection was lost
+        String[] events = splitAnalyticsBatch(eventsJson);
+        if (events == null) return false;
+        boolean queued = true;
+        for (String event : events) {
+            queued &= sendMessage(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, event);
+        }
+        return queued;
+    }
+
+    // Null if the batch is not a json array
+    private static String[] splitAnalyticsBatch(String eventsJson) {
+        try {
+            JSONArray array = new JSONArray(eventsJson);
+            String[] events = new String[array.length()];
+            for (int i = 0; i < events.length; i++) {
+                events[i] = array.get(i).toString();
+            }
+            return events;
+        } catch (JSONException e) {
+            Log.e(TAG, "Invalid analytics batch: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static AnalyticsEventBatcher.Scheduler schedulerFor(Handler handler) {
+        return new AnalyticsEventBatcher.Scheduler() {
+            @Override
+            public void post(Runnable runnable) {
+                handler.post(runnable);
+            }
+
+            @Override
+            public void postDelayed(Runnable runnable, long delayMs) {
+                handler.postDelayed(runnable, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable runnable) {
+                handler.removeCallbacks(runnable);
+            }
+        };
+    }
+
+    // Batches queued while sending to an admin app that accepted them, for one that may not
+    private static List<OutboundMessageQueue.Entry> splitAnalyticsBatches(List<OutboundMessageQueue.Entry> entries) {
+        List<OutboundMessageQueue.Entry> split = new ArrayList<>(entries.size());
+        for (OutboundMessageQueue.Entry entry : entries) {
+            String[] events = entry.what == AdminAppMessageTypes.LOG_ANALYTICS_EVENTS && entry.json != null
+                    ? splitAnalyticsBatch(entry.json) : null;
+            if (events == null) {
+                split.add(entry);
+                continue;
+            }
+            for (String event : events) {
+                split.add(new OutboundMessageQueue.Entry(AdminAppMessageTypes.LOG_ANALYTICS_EVENT, event, 0, entry.queuedAt));
+            }
+        }
+        return split;
+    }
+
+    /**
+     * Sends a json payload with a single string field
+     */
+    private boolean sendStringField(int what, String name, String value) {
+        String payload = JsonPayloadWriter.obtain()
+                .beginObject()
+                .name(name).value(value)
+                .endObject()
+                .build();
+        return sendMessage(what, payload);
+    }
+
     public boolean sendMessage(int what) {
         return sendMessage(what, null);
     }
 
     public boolean sendMessage(int what, String jsonString) {
-        if (!bound) {
-            tryBindToAdminService();
+        return sendMessage(what, jsonString, 0);
+    }
+
+    /**
+     * Sends a message, or queues it for delivery once bound (see OutboundMessageQueue). While
+     * messages are queued, later ones are queued behind them so none is overtaken.
+     * Returns whether the message was sent or queued.
+     */
+    private boolean sendMessage(int what, String jsonString, int requestId) {
+        boolean queued;
+        synchronized (sendLock) {
+            if (bound && outboundQueue.size() == 0 && deliver(what, jsonString, requestId)) return true;
+            queued = enqueue(what, jsonString, requestId);
+        }
+        // The binding may complete on the IPC thread meanwhile, so flush from there if it did
+        ipcHandler.post(this::onMessageQueued);
+        return queued;
+    }
+
+    private void onMessageQueued() {
+        if (bound) {
+            flushOutboundQueue();
+        } else if (!bindRetryPending && !localService) {
+            // Discovery normally has a retry pending already, keep its backoff as it is
+            ipcHandler.postDelayed(bindRetryRunnable, bindRetryDelayMs);
+            bindRetryPending = true;
+        }
+    }
+
+    private boolean enqueue(int what, String jsonString, int requestId) {
+        // Registration only makes sense on the binding it was sent for
+        if (what == AdminAppMessageTypes.REGISTER_CLIENT || what == AdminAppMessageTypes.UNREGISTER_CLIENT) {
             return false;
         }
+        MXRMetrics.count("ipc.queued", what);
+        return outboundQueue.offer(what, jsonString, requestId);
+    }
+
+    private void flushOutboundQueue() {
+        synchronized (sendLock) {
+            List<OutboundMessageQueue.Entry> entries = outboundQueue.drain();
+            if (entries.isEmpty()) return;
+            if (!adminCapabilities.has(AdminAppCapabilities.CAPABILITY_ANALYTICS_BATCH)) {
+                entries = splitAnalyticsBatches(entries);
+            }
+
+            Log.v(TAG, "Delivering " + entries.size() + " queued messages");
+            for (int i = 0; i < entries.size(); i++) {
+                OutboundMessageQueue.Entry entry = entries.get(i);
+                if (deliver(entry.what, entry.json, entry.requestId)) continue;
+                // deliver marks the connection lost when the admin app is gone
+                if (!bound) {
+                    outboundQueue.requeue(entries.subList(i, entries.size()));
+                    return;
+                }
+                // Still bound, so the message itself was refused for its size, don't let it block the rest
+                Log.e(TAG, "Dropping queued message of type " + entry.what);
+                MXRMetrics.count("ipc.queuedDropped", entry.what);
+            }
+        }
+    }
+
+    /**
+     * Number of analytics messages dropped because too many were queued while not bound,
+     * plus events dropped because the batch buffer overflowed
+     */
+    public int getDroppedAnalyticsEventCount() {
+        return outboundQueue.getDroppedAnalyticsEvents() + analyticsBatcher.getDroppedEventCount();
+    }
+
+    /**
+     * Number of analytics events waiting in the batch buffer
+     */
+    public int getBufferedAnalyticsEventCount() {
+        return analyticsBatcher.getBufferedEventCount();
+    }
+
+    /**
+     * Number of messages rejected because the outbound queue was full
+     */
+    public int getRejectedMessageCount() {
+        return outboundQueue.getRejectedMessages();
+    }
+
+    /**
+     * Number of destructive commands (e.g. REBOOT) dropped because they were queued for too long,
+     * see OutboundMessageQueue.DESTRUCTIVE_TTL_MS
+     */
+    public int getExpiredMessageCount() {
+        return outboundQueue.getExpiredMessages();
+    }
+
+    /**
+     * Payload sizes of messages received from the admin app per message type, as json (see MessageSizeStats).
+     * Empty unless MXRMetrics is enabled.
+     */
+    public String getIncomingMessageSizeStats() {
+        return incomingSizes.toJson();
+    }
+
+    /**
+     * Payload sizes of messages sent to the admin app per message type, as json (see MessageSizeStats).
+     * Empty unless MXRMetrics is enabled.
+     */
+    public String getOutgoingMessageSizeStats() {
+        return outgoingSizes.toJson();
+    }
+
+    private boolean deliver(int what, String jsonString, int requestId) {
+        if (jsonString != null && jsonString.length() > PayloadChunking.THRESHOLD_CHARS) {
+            if (adminCapabilities.has(AdminAppCapabilities.CAPABILITY_CHUNKED_TRANSFER)) {
+                return deliverChunked(what, jsonString, requestId);
+            }
+            Log.w(TAG, "Sending " + jsonString.length() + " chars of type " + what + " in one transaction");
+        }
+        if (jsonString != null) outgoingSizes.record(what, jsonString.length(), false);
+
+        Bundle bundle = null;
+        if (jsonString != null || requestId != 0) {
+            bundle = new Bundle();
+            if (jsonString != null) bundle.putString(AdminAppPayloadCodec.KEY_JSON, jsonString);
+            if (requestId != 0) bundle.putInt("requestId", requestId);
+        }
 
         Message msg = Message.obtain(null, what);
-        msg.replyTo = incomingMessenger;
+        msg.arg1 = requestId;
+        return deliver(msg, bundle);
+    }
 
-        if (jsonString != null) {
+    private boolean deliverChunked(int what, String jsonString, int requestId) {
+        List<String> chunks = PayloadChunking.split(jsonString, PayloadChunking.CHUNK_CHARS);
+        int chunkId = nextChunkId.getAndIncrement();
+        outgoingSizes.record(what, jsonString.length(), true);
+
+        for (int i = 0; i < chunks.size(); i++) {
             Bundle bundle = new Bundle();
-            bundle.putString("json", jsonString);
-            msg.setData( bundle);
+            bundle.putString(AdminAppPayloadCodec.KEY_JSON, chunks.get(i));
+            bundle.putInt(PayloadChunking.KEY_CHUNK_ID, chunkId);
+            bundle.putInt(PayloadChunking.KEY_CHUNK_INDEX, i);
+            bundle.putInt(PayloadChunking.KEY_CHUNK_COUNT, chunks.size());
+            if (requestId != 0) bundle.putInt("requestId", requestId);
+
+            Message msg = Message.obtain(null, what);
+            msg.arg1 = requestId;
+            // The admin app drops a partial transfer, and a retry sends all chunks under a new id
+            if (!deliver(msg, bundle)) return false;
         }
+        return true;
+    }
+
+    private boolean deliver(int what, Bundle bundle) {
+        return deliver(Message.obtain(null, what), bundle);
+    }
+
+    private boolean deliver(Message msg, Bundle bundle) {
+        Messenger messenger = outgoingMessenger;
+        if (!bound || messenger == null) return false;
 
+        msg.replyTo = incomingMessenger;
+        if (bundle != null) msg.setData(bundle);
+
+        int what = msg.what;
         try {
-            outgoingMessenger.send(msg);
+            messenger.send(msg);
+        } catch (TransactionTooLargeException e) {
+            Log.e(TAG, "Message of type " + what + " exceeds the binder transaction limit");
+            MXRMetrics.count("ipc.sendFailed", what);
+            return false;
         } catch (RemoteException e) {
-            Log.e(TAG, e.getMessage());
+            // DeadObjectException: the admin process died, onServiceDisconnected may not have arrived yet
+            Log.e(TAG, "Admin app unreachable: " + e);
+            MXRMetrics.count("ipc.sendFailed", what);
+            onPeerDied();
             return false;
         }
+        MXRMetrics.count("ipc.send", what);
         return true;
     }
 
+    // Treats the connection as lost right away, so queued messages wait for the next binding
+    private void onPeerDied() {
+        if (Looper.myLooper() != ipcHandler.getLooper()) {
+            ipcHandler.post(this::onPeerDied);
+            return;
+        }
+        if (!bound) return;
+        onConnectionLost();
+        listener.onBindStatusToAdminAppChanged(false);
+    }
+
     private ComponentName getInstalledAdminServiceComponent() {
         return nativeUtils.getAdminServiceComponentName();
     }
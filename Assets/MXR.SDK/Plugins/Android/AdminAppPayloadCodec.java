@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import android.os.Bundle;
+import android.util.Log;
+
+/**
+ * Reads message payloads, which are json strings under the "json" key (ENCODING_JSON, see
+ * AdminAppCapabilities), or chunks of one (see PayloadChunking).
+ */
+class AdminAppPayloadCodec {
+    static final String TAG = "AdminAppPayloadCodec";
+
+    static final String KEY_JSON = "json";
+
+    /**
+     * Returns the json payload of a message, or null if it has none
+     */
+    static String readJson(Bundle bundle) {
+        return bundle.getString(KEY_JSON, null);
+    }
+
+    static boolean isChunk(Bundle bundle) {
+        return bundle.containsKey(PayloadChunking.KEY_CHUNK_ID);
+    }
+
+    /**
+     * Passes a chunk message to the assembler. Returns the whole payload once its last chunk arrived,
+     * null otherwise.
+     */
+    static String acceptChunk(PayloadChunking.Assembler assembler, int what, Bundle bundle) {
+        int id = bundle.getInt(PayloadChunking.KEY_CHUNK_ID);
+        int index = bundle.getInt(PayloadChunking.KEY_CHUNK_INDEX);
+        int count = bundle.getInt(PayloadChunking.KEY_CHUNK_COUNT);
+        int invalidChunks = assembler.getInvalidChunkCount();
+        int droppedTransfers = assembler.getDroppedTransferCount();
+
+        String json = assembler.accept(what, id, index, count, bundle.getString(KEY_JSON, ""));
+
+        if (assembler.getInvalidChunkCount() != invalidChunks) {
+            Log.w(TAG, "Invalid chunk " + index + "/" + count + " of transfer " + id);
+        }
+        if (assembler.getDroppedTransferCount() != droppedTransfers) {
+            Log.w(TAG, "Dropped " + (assembler.getDroppedTransferCount() - droppedTransfers) + " incomplete transfers");
+        }
+        return json;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handle to a request sent to the admin app that expects a reply, e.g. GET_DEVICE_STATUS -> DEVICE_STATUS.
+ * The request resolves with the json of the matching reply, or ends timed out, cancelled or failed.
+ */
+public class AdminAppRequest {
+    public interface OnCompleteListener {
+        void onComplete(AdminAppRequest request);
+    }
+
+    public static final int PENDING = 0;
+    public static final int COMPLETED = 1;
+    public static final int TIMED_OUT = 2;
+    public static final int CANCELLED = 3;
+    public static final int FAILED = 4;
+
+    public final int requestId;
+    public final int what;
+    public final int replyWhat;
+
+    private int state = PENDING;
+    private String json;
+    private List<OnCompleteListener> listeners;
+
+    AdminAppRequest(int _requestId, int _what, int _replyWhat) {
+        requestId = _requestId;
+        what = _what;
+        replyWhat = _replyWhat;
+    }
+
+    public synchronized int getState() {
+        return state;
+    }
+
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * The json payload of the reply, or null if the request did not complete
+     */
+    public synchronized String getJson() {
+        return json;
+    }
+
+    /**
+     * Blocks until the request is done or timeoutMs elapses, and returns the reply json.
+     * Returns null if the request did not complete in time. Never call this from the thread
+     * that receives admin app messages, as the reply would never be handled.
+     */
+    public synchronized String await(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (state == PENDING) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) break;
+            wait(remaining);
+        }
+        return json;
+    }
+
+    /**
+     * Cancels the request. Listeners are notified, and a reply arriving later is ignored.
+     * Returns false if the request was already done.
+     */
+    public boolean cancel() {
+        return finish(CANCELLED, null);
+    }
+
+    /**
+     * Adds a listener called once the request is done, on the thread that completed it.
+     * If the request is already done, the listener is called immediately.
+     */
+    public void addOnCompleteListener(OnCompleteListener listener) {
+        synchronized (this) {
+            if (state == PENDING) {
+                if (listeners == null) listeners = new ArrayList<>();
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.onComplete(this);
+    }
+
+    boolean complete(String _json) {
+        return finish(COMPLETED, _json);
+    }
+
+    boolean timeout() {
+        return finish(TIMED_OUT, null);
+    }
+
+    boolean fail() {
+        return finish(FAILED, null);
+    }
+
+    private boolean finish(int _state, String _json) {
+        List<OnCompleteListener> toNotify;
+        synchronized (this) {
+            if (state != PENDING) return false;
+            state = _state;
+            json = _json;
+            toNotify = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        if (toNotify != null) {
+            for (OnCompleteListener listener : toNotify) listener.onComplete(this);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Accumulates analytics events in a ring buffer and hands them to the sender as one json array,
+ * when enough events are buffered, when the oldest buffered event gets too old, or when flushed
+ * explicitly (app pause, termination). When the buffer is full the oldest event is dropped and counted,
+ * and add reports it. Flushes only run on the scheduler thread, so batches are sent in order.
+ * Only events that pass isValidEvent may be added, one malformed event would make the whole batch
+ * invalid json.
+ */
+class AnalyticsEventBatcher {
+    interface Sender {
+        /**
+         * Sends a json array of events. Returns whether the batch was accepted.
+         */
+        boolean sendBatch(String eventsJsonArray, int eventCount);
+    }
+
+    /**
+     * Runs flushes on a single thread, a Handler on device
+     */
+    interface Scheduler {
+        void post(Runnable runnable);
+
+        void postDelayed(Runnable runnable, long delayMs);
+
+        void removeCallbacks(Runnable runnable);
+    }
+
+    static final int CAPACITY = 256;
+    static final int FLUSH_SIZE = 32;
+    static final long FLUSH_AGE_MS = 2_000;
+
+    private final String[] events = new String[CAPACITY];
+    private int head;
+    private int count;
+    private int droppedEvents;
+    private int sentEvents;
+
+    private final Sender sender;
+    private final Scheduler scheduler;
+    private final Runnable flushRunnable = this::flush;
+    private final StringBuilder payload = new StringBuilder(4096);
+
+    AnalyticsEventBatcher(Sender _sender, Scheduler _scheduler) {
+        sender = _sender;
+        scheduler = _scheduler;
+    }
+
+    /**
+     * Whether the event is a json object, and so safe to join into a batch
+     */
+    static boolean isValidEvent(String eventJson) {
+        if (eventJson == null || eventJson.trim().isEmpty()) return false;
+        try {
+            new JSONObject(eventJson);
+            return true;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Buffers the event, which must pass isValidEvent. Returns false if the buffer was full and the
+     * oldest event was dropped for it.
+     */
+    boolean add(String eventJson) {
+        boolean first;
+        boolean full;
+        boolean dropped = false;
+        synchronized (this) {
+            if (count == CAPACITY) {
+                // Back-pressure: the sender cannot keep up, drop the oldest event
+                events[head] = null;
+                head = (head + 1) % CAPACITY;
+                count--;
+                droppedEvents++;
+                dropped = true;
+            }
+            events[(head + count) % CAPACITY] = eventJson;
+            count++;
+            first = count == 1;
+            full = count >= FLUSH_SIZE;
+        }
+
+        if (full) {
+            scheduler.removeCallbacks(flushRunnable);
+            scheduler.post(flushRunnable);
+        } else if (first) {
+            scheduler.postDelayed(flushRunnable, FLUSH_AGE_MS);
+        }
+        return !dropped;
+    }
+
+    /**
+     * Sends all buffered events as one batch. Scheduler thread only.
+     */
+    void flush() {
+        scheduler.removeCallbacks(flushRunnable);
+        String batch;
+        int batchCount;
+        synchronized (this) {
+            if (count == 0) return;
+            payload.setLength(0);
+            payload.append('[');
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % CAPACITY;
+                if (i > 0) payload.append(',');
+                payload.append(events[index]);
+                events[index] = null;
+            }
+            payload.append(']');
+            batch = payload.toString();
+            batchCount = count;
+            head = 0;
+            count = 0;
+        }
+
+        if (sender.sendBatch(batch, batchCount)) {
+            synchronized (this) {
+                sentEvents += batchCount;
+            }
+        } else {
+            synchronized (this) {
+                droppedEvents += batchCount;
+            }
+        }
+    }
+
+    synchronized int getBufferedEventCount() {
+        return count;
+    }
+
+    synchronized int getDroppedEventCount() {
+        return droppedEvents;
+    }
+
+    synchronized int getSentEventCount() {
+        return sentEvents;
+    }
+}
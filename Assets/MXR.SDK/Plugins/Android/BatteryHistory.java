@@ -0,0 +1,68 @@
+package com.mightyimmersion.customlauncher;
+
+/**
+ * Fixed-size ring buffer of battery level samples, kept in primitive arrays, used to estimate the
+ * drain rate with a least squares fit over the samples. Only samples taken while discharging count,
+ * the buffer is cleared when the device is plugged in. Not thread safe.
+ */
+class BatteryHistory {
+    static final int CAPACITY = 64;
+    // Below this span the level resolution (1%) makes the fit meaningless
+    static final long MIN_SPAN_MS = 5 * 60_000;
+
+    private final long[] times = new long[CAPACITY];
+    private final int[] levels = new int[CAPACITY];
+    private int start;
+    private int count;
+
+    /**
+     * Adds a sample, overwriting the oldest one when full. timeMs is SystemClock.elapsedRealtime.
+     */
+    void add(long timeMs, int level) {
+        if (count > 0 && levels[index(count - 1)] == level) return;
+        if (count == CAPACITY) {
+            start = (start + 1) % CAPACITY;
+            count--;
+        }
+        int i = index(count++);
+        times[i] = timeMs;
+        levels[i] = level;
+    }
+
+    void clear() {
+        start = 0;
+        count = 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Drain rate in percent per hour, positive while discharging, or -1 when the samples do not
+     * span MIN_SPAN_MS yet
+     */
+    float getDrainRatePerHour() {
+        if (count < 2 || times[index(count - 1)] - times[start] < MIN_SPAN_MS) return -1;
+
+        // Relative to the first sample to keep the sums small
+        long t0 = times[start];
+        double sumT = 0, sumL = 0, sumTT = 0, sumTL = 0;
+        for (int n = 0; n < count; n++) {
+            int i = index(n);
+            double t = (times[i] - t0) / 3_600_000.0;
+            sumT += t;
+            sumL += levels[i];
+            sumTT += t * t;
+            sumTL += t * levels[i];
+        }
+        double denominator = count * sumTT - sumT * sumT;
+        if (denominator <= 0) return -1;
+        double slope = (count * sumTL - sumT * sumL) / denominator;
+        return (float) Math.max(0, -slope);
+    }
+
+    private int index(int n) {
+        return (start + n) % CAPACITY;
+    }
+}
@@ -1,22 +1,163 @@
 package com.mightyimmersion.customlauncher;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.BatteryManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
 
 import static android.content.Context.BATTERY_SERVICE;
 
-public class BatteryService {
+/**
+ * Battery state, cached from ACTION_BATTERY_CHANGED. The receiver is registered once, the sticky
+ * broadcast fills the fields immediately and later broadcasts update them, so the getters only read
+ * volatile fields and are cheap enough to call every frame.
+ *
+ * Levels seen while discharging are kept in a BatteryHistory to estimate the drain rate and the
+ * remaining time.
+ *
+ * The receiver is registered on the application context. Prefer the shared instance from
+ * getInstance, which stays registered for the life of the process. Instances created with the
+ * constructor register a receiver each and must be released once no longer used.
+ */
+public class BatteryService extends BroadcastReceiver {
+    static final String TAG = "BatteryService";
+
+    private static BatteryService instance;
+
     private Context context;
+    private BatteryManager batteryManager;
+
+    // Updated on the main thread, and by the constructor for the sticky broadcast
+    private final BatteryHistory history = new BatteryHistory();
+
+    private volatile int level = -1;
+    private volatile boolean charging;
+    private volatile int temperature = Integer.MIN_VALUE;
+    private volatile int voltage = -1;
+    private volatile int current = Integer.MIN_VALUE;
+    private volatile float drainRatePerHour = -1;
 
+    /**
+     * The shared instance, created on first use. Never release it.
+     */
+    public static synchronized BatteryService getInstance(Context context) {
+        if (instance == null) instance = new BatteryService(context);
+        return instance;
+    }
+
+    /**
+     * Registers a receiver of its own, call release() when done. See getInstance.
+     */
     public BatteryService(Context _context) {
-        context = _context;
+        // Outlives the caller's context, e.g. an Activity, which would leak the receiver otherwise
+        Context applicationContext = _context.getApplicationContext();
+        context = applicationContext != null ? applicationContext : _context;
+        batteryManager = (BatteryManager) context.getSystemService(BATTERY_SERVICE);
+
+        Intent sticky = context.registerReceiver(this, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (sticky != null) onReceive(context, sticky);
     }
 
+    /**
+     * Unregisters the receiver. The getters keep returning the last known state.
+     */
+    public void release() {
+        synchronized (BatteryService.class) {
+            if (this == instance) {
+                Log.w(TAG, "The shared instance is never released");
+                return;
+            }
+        }
+        try {
+            context.unregisterReceiver(this);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Already released: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Battery level in percent, or -1 if unknown
+     */
     public int getBatteryLevel() {
-        BatteryManager bm = (BatteryManager)context.getSystemService(BATTERY_SERVICE);
-        if (bm == null) {
-            return -1;
+        return level;
+    }
+
+    /**
+     * Whether the battery is charging or full
+     */
+    public boolean isCharging() {
+        return charging;
+    }
+
+    /**
+     * Battery temperature in tenths of a degree Celsius, or Integer.MIN_VALUE if unknown
+     */
+    public int getTemperature() {
+        return temperature;
+    }
+
+    /**
+     * Battery voltage in millivolts, or -1 if unknown
+     */
+    public int getVoltage() {
+        return voltage;
+    }
+
+    /**
+     * Battery current in microamperes as of the last battery broadcast, negative while discharging
+     * on most devices. Integer.MIN_VALUE if unsupported or before API 21.
+     */
+    public int getCurrent() {
+        return current;
+    }
+
+    /**
+     * Drain rate in percent per hour, or -1 while charging or until enough levels were seen,
+     * see BatteryHistory
+     */
+    public float getDrainRatePerHour() {
+        return drainRatePerHour;
+    }
+
+    /**
+     * Estimated minutes until the battery is empty at the current drain rate, or -1 if unknown
+     */
+    public int getRemainingMinutes() {
+        float rate = drainRatePerHour;
+        int currentLevel = level;
+        if (rate <= 0 || currentLevel < 0) return -1;
+        return (int) (currentLevel / rate * 60);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        MXRMetrics.count("battery.changed");
+        int rawLevel = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        boolean nowCharging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+
+        int newLevel = rawLevel >= 0 && scale > 0 ? rawLevel * 100 / scale : -1;
+        temperature = intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, Integer.MIN_VALUE);
+        voltage = intent.getIntExtra(BatteryManager.EXTRA_VOLTAGE, -1);
+        if (Build.VERSION.SDK_INT >= 21 && batteryManager != null) {
+            current = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW);
+        }
+
+        synchronized (history) {
+            if (nowCharging) {
+                history.clear();
+            } else if (newLevel >= 0) {
+                if (charging) history.clear();
+                history.add(SystemClock.elapsedRealtime(), newLevel);
+            }
+            level = newLevel;
+            charging = nowCharging;
+            drainRatePerHour = nowCharging ? -1 : history.getDrainRatePerHour();
         }
-        return bm.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
     }
 }
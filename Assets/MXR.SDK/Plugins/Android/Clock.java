@@ -0,0 +1,17 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+/**
+ * Monotonic time source of the IPC classes, SystemClock::elapsedRealtime on device and a
+ * settable time in the JVM tests.
+ */
+interface Clock {
+    long elapsedRealtime();
+}
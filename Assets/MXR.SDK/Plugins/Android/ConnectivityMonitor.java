@@ -0,0 +1,262 @@
+package com.mightyimmersion.customlauncher;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.Handler;
+import android.util.Log;
+
+/**
+ * Tracks the default network with a ConnectivityManager.NetworkCallback (API 21+) and keeps its
+ * transport, internet access, SSID and link speed in volatile fields, so reads are free and never
+ * reach ConnectivityManager or WifiManager. start() reads the current state synchronously, so the
+ * fields are valid from then on.
+ *
+ * Before API 24 there is no default network callback. Callbacks for any network with internet
+ * access then only trigger a re-read of the active network.
+ *
+ * Callbacks update a pending state on the given handler, which is published once it has been stable
+ * for DEBOUNCE_MS. The listener is only called when the published state changes, so a flapping
+ * network does not flood it.
+ */
+public class ConnectivityMonitor {
+    static final String TAG = "ConnectivityMonitor";
+
+    interface Listener {
+        /**
+         * Called on the monitor handler after the published state changed
+         */
+        void onConnectivityChanged(ConnectivityMonitor monitor);
+    }
+
+    public static final int TRANSPORT_NONE = 0;
+    public static final int TRANSPORT_WIFI = 1;
+    public static final int TRANSPORT_ETHERNET = 2;
+    public static final int TRANSPORT_CELLULAR = 3;
+    public static final int TRANSPORT_OTHER = 4;
+
+    static final long DEBOUNCE_MS = 500;
+
+    private final ConnectivityManager connectivityManager;
+    private final WifiManager wifiManager;
+    private final Handler handler;
+    private final Listener listener;
+    private final Runnable publishRunnable = this::publish;
+    private ConnectivityManager.NetworkCallback callback;
+
+    // Pending state, handler thread only once start() seeded it
+    private Network network;
+    private NetworkCapabilities capabilities;
+
+    // Published state
+    private volatile int transport = TRANSPORT_NONE;
+    private volatile boolean internet;
+    private volatile String ssid;
+    private volatile int linkSpeedMbps = -1;
+
+    ConnectivityMonitor(Context context, Handler _handler, Listener _listener) {
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+        handler = _handler;
+        listener = _listener;
+    }
+
+    static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= 21;
+    }
+
+    /**
+     * Registers the network callback. Returns false if callbacks are not supported or registration failed.
+     */
+    boolean start() {
+        if (!isSupported() || connectivityManager == null || callback != null) return false;
+
+        try {
+            network = queryActiveNetwork();
+            capabilities = network != null ? connectivityManager.getNetworkCapabilities(network) : null;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Could not read the active network: " + e);
+            return false;
+        }
+        publishState();
+
+        callback = new ConnectivityManager.NetworkCallback() {
+            // Called on a ConnectivityManager thread, handled on the monitor handler
+            @Override
+            public void onAvailable(Network _network) {
+                handler.post(() -> {
+                    if (Build.VERSION.SDK_INT >= 24) onNetworkAvailable(_network); else onActiveNetworkMaybeChanged();
+                });
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network _network, NetworkCapabilities _capabilities) {
+                handler.post(() -> {
+                    if (Build.VERSION.SDK_INT >= 24) onNetworkCapabilitiesChanged(_network, _capabilities); else onActiveNetworkMaybeChanged();
+                });
+            }
+
+            @Override
+            public void onLost(Network _network) {
+                handler.post(() -> {
+                    if (Build.VERSION.SDK_INT >= 24) onNetworkLost(_network); else onActiveNetworkMaybeChanged();
+                });
+            }
+        };
+
+        try {
+            if (Build.VERSION.SDK_INT >= 24) {
+                connectivityManager.registerDefaultNetworkCallback(callback);
+            } else {
+                // Before API 24 there is no default network callback, any network with internet access may be the default
+                NetworkRequest request = new NetworkRequest.Builder()
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                        .build();
+                connectivityManager.registerNetworkCallback(request, callback);
+            }
+        } catch (RuntimeException e) {
+            // e.g. SecurityException without ACCESS_NETWORK_STATE, or too many callbacks registered
+            Log.e(TAG, "Could not register network callback: " + e);
+            callback = null;
+            return false;
+        }
+        return true;
+    }
+
+    void stop() {
+        if (callback == null) return;
+        try {
+            connectivityManager.unregisterNetworkCallback(callback);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "unregisterNetworkCallback: " + e.getMessage());
+        }
+        callback = null;
+        handler.removeCallbacks(publishRunnable);
+    }
+
+    /**
+     * One of the TRANSPORT_ constants
+     */
+    int getTransport() {
+        return transport;
+    }
+
+    /**
+     * Whether the default network has internet access. Validation by the system is not required, it
+     * never succeeds on networks that block the connectivity check.
+     */
+    boolean hasInternet() {
+        return internet;
+    }
+
+    /**
+     * The SSID as reported by WifiInfo.getSSID, quoted, or null when not on Wi-Fi
+     */
+    String getSsid() {
+        return ssid;
+    }
+
+    /**
+     * Wi-Fi link speed in Mbps as of the last network change, or -1 when not on Wi-Fi
+     */
+    int getLinkSpeedMbps() {
+        return linkSpeedMbps;
+    }
+
+    private void onNetworkAvailable(Network _network) {
+        network = _network;
+        capabilities = connectivityManager.getNetworkCapabilities(_network);
+        schedulePublish();
+    }
+
+    private void onNetworkCapabilitiesChanged(Network _network, NetworkCapabilities _capabilities) {
+        if (network != null && !network.equals(_network)) return;
+        network = _network;
+        capabilities = _capabilities;
+        schedulePublish();
+    }
+
+    private void onNetworkLost(Network _network) {
+        if (network == null || !network.equals(_network)) return;
+        network = null;
+        capabilities = null;
+        schedulePublish();
+    }
+
+    private void onActiveNetworkMaybeChanged() {
+        network = queryActiveNetwork();
+        capabilities = network != null ? connectivityManager.getNetworkCapabilities(network) : null;
+        schedulePublish();
+    }
+
+    // The default network, found through the active NetworkInfo on API 21-22 where getActiveNetwork is missing
+    private Network queryActiveNetwork() {
+        if (Build.VERSION.SDK_INT >= 23) return connectivityManager.getActiveNetwork();
+
+        NetworkInfo active = connectivityManager.getActiveNetworkInfo();
+        if (active == null || !active.isConnected()) return null;
+        for (Network candidate : connectivityManager.getAllNetworks()) {
+            NetworkInfo info = connectivityManager.getNetworkInfo(candidate);
+            if (info != null && info.isConnected() && info.getType() == active.getType()) return candidate;
+        }
+        return null;
+    }
+
+    private void schedulePublish() {
+        MXRMetrics.count("net.callback");
+        handler.removeCallbacks(publishRunnable);
+        handler.postDelayed(publishRunnable, DEBOUNCE_MS);
+    }
+
+    private void publish() {
+        if (publishState()) {
+            MXRMetrics.count("net.changed");
+            listener.onConnectivityChanged(this);
+        }
+    }
+
+    // Publishes the pending state, returns whether it changed
+    private boolean publishState() {
+        NetworkCapabilities caps = capabilities;
+        int newTransport = transportOf(caps);
+        boolean newInternet = caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+
+        String newSsid = null;
+        int newLinkSpeed = -1;
+        if (newTransport == TRANSPORT_WIFI && wifiManager != null) {
+            long start = MXRMetrics.start();
+            WifiInfo info = wifiManager.getConnectionInfo();
+            MXRMetrics.recordSince("wifi.getConnectionInfoUs", start);
+            if (info != null) {
+                newSsid = info.getSSID();
+                newLinkSpeed = info.getLinkSpeed();
+            }
+        }
+
+        boolean changed = newTransport != transport || newInternet != internet
+                || newLinkSpeed != linkSpeedMbps || !equals(newSsid, ssid);
+        transport = newTransport;
+        internet = newInternet;
+        ssid = newSsid;
+        linkSpeedMbps = newLinkSpeed;
+        return changed;
+    }
+
+    private static int transportOf(NetworkCapabilities caps) {
+        if (caps == null) return TRANSPORT_NONE;
+        if (caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) return TRANSPORT_WIFI;
+        if (caps.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) return TRANSPORT_ETHERNET;
+        if (caps.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) return TRANSPORT_CELLULAR;
+        return TRANSPORT_OTHER;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.Arrays;
+
+/**
+ * Load test of the admin app messaging path, against a LoopbackAdminService so it runs on any
+ * device, with or without the admin app. A real AdminAppMessengerManager is connected to the loopback
+ * service, so registration, queueing, batching, chunking and change tracking are all exercised.
+ *
+ * Phases, each run with messageCount messages:
+ * - requests: sequential GET_DEVICE_STATUS round trips, latency percentiles in microseconds
+ * - commands: a burst of CHECK_DB messages, until the service received all of them
+ * - analytics: a burst of analytics events, batched and one message per event
+ * - status: DEVICE_STATUS pushes from the service, half of them unchanged
+ * - reconnect: service disconnects, with a command queued, until bound and the command delivered
+ * Memory churn is reported for the whole run, from ART runtime stats (API 23+, -1 otherwise).
+ *
+ * Blocks for the whole run, so never call it from the main thread. From Unity:
+ * new AndroidJavaClass("com.mightyimmersion.customlauncher.IpcBenchmark").CallStatic<string>("run", context, 1000, 512)
+ * Only included in development builds, like everything in Development/.
+ */
+public class IpcBenchmark {
+    static final String TAG = "IpcBenchmark";
+
+    private static final long PHASE_TIMEOUT_MS = 30_000;
+    private static final int MAX_RECONNECTS = 20;
+
+    private static class Listener implements AdminAppMessengerManager.AdminAppMessengerListener {
+        private boolean bound;
+        private int messages;
+
+        @Override
+        public synchronized void onBindStatusToAdminAppChanged(boolean _bound) {
+            bound = _bound;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onMessageFromAdminApp(int what, String json) {
+            messages++;
+            notifyAll();
+        }
+
+        synchronized int getMessageCount() {
+            return messages;
+        }
+
+        synchronized boolean awaitBound(boolean _bound, long timeoutMs) throws InterruptedException {
+            long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+            while (bound != _bound) {
+                long remaining = deadline - SystemClock.elapsedRealtime();
+                if (remaining <= 0) return false;
+                wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Runs all phases and returns the results as json, or null if the manager never connected
+     * to the loopback service.
+     *
+     * @param messageCount Messages per phase
+     * @param payloadChars Size of the loopback service replies and pushes
+     */
+    public static String run(Context context, int messageCount, int payloadChars) throws InterruptedException {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("IpcBenchmark blocks, run it off the main thread");
+        }
+        messageCount = Math.max(messageCount, 1);
+
+        LauncherStartup startup = LauncherStartup.getInstance();
+        NativeUtils nativeUtils = startup != null ? startup.getNativeUtils() : new NativeUtils(context);
+
+        LoopbackAdminService service = new LoopbackAdminService();
+        service.setRandomPayloadChars(payloadChars);
+        service.setAdvertisedCapabilities(
+                new String[]{ AdminAppCapabilities.ENCODING_JSON },
+                new String[]{ AdminAppCapabilities.CAPABILITY_ANALYTICS_BATCH, AdminAppCapabilities.CAPABILITY_CHUNKED_TRANSFER });
+
+        Listener listener = new Listener();
+        AdminAppMessengerManager manager = new AdminAppMessengerManager(context, listener, nativeUtils);
+
+        long allocatedBefore = getRuntimeStat("art.gc.bytes-allocated");
+        long gcCountBefore = getRuntimeStat("art.gc.gc-count");
+        long heapBefore = usedHeapBytes();
+
+        JsonPayloadWriter writer = JsonPayloadWriter.obtain().beginObject()
+                .name("messageCount").value(messageCount)
+                .name("payloadChars").value(payloadChars);
+        try {
+            long start = System.nanoTime();
+            manager.connectToLocalService(service.getBinder());
+            if (!listener.awaitBound(true, PHASE_TIMEOUT_MS)) {
+                Log.e(TAG, "Could not connect to the loopback service");
+                return null;
+            }
+            writer.name("connectUs").value(micros(System.nanoTime() - start));
+            // The first reply carries the service capabilities
+            manager.request(AdminAppMessageTypes.GET_RUNTIME_SETTINGS).await(PHASE_TIMEOUT_MS);
+
+            runRequests(writer, manager, messageCount);
+            runCommands(writer, manager, service, messageCount);
+            runAnalytics(writer, manager, service, messageCount, true);
+            runAnalytics(writer, manager, service, messageCount, false);
+            runStatusPushes(writer, manager, service, listener, messageCount, payloadChars);
+            runReconnects(writer, manager, service, listener, Math.min(messageCount, MAX_RECONNECTS));
+        } finally {
+            manager.release();
+            service.stop();
+        }
+
+        writer.name("memory").beginObject()
+                .name("allocatedBytes").value(delta(allocatedBefore, getRuntimeStat("art.gc.bytes-allocated")))
+                .name("gcCount").value(delta(gcCountBefore, getRuntimeStat("art.gc.gc-count")))
+                .name("heapGrowthBytes").value(usedHeapBytes() - heapBefore)
+                .endObject();
+
+        String result = writer.endObject().build();
+        Log.i(TAG, result);
+        return result;
+    }
+
+    private static void runRequests(JsonPayloadWriter writer, AdminAppMessengerManager manager, int count) throws InterruptedException {
+        long[] latencies = new long[count];
+        int completed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long requestStart = System.nanoTime();
+            AdminAppRequest request = manager.request(AdminAppMessageTypes.GET_DEVICE_STATUS, PHASE_TIMEOUT_MS);
+            if (request.await(PHASE_TIMEOUT_MS) == null) continue;
+            latencies[completed++] = System.nanoTime() - requestStart;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies, 0, completed);
+        writer.name("requests").beginObject()
+                .name("completed").value(completed)
+                .name("perSecond").value(perSecond(completed, elapsed))
+                .name("p50Us").value(micros(percentile(latencies, completed, 0.5)))
+                .name("p90Us").value(micros(percentile(latencies, completed, 0.9)))
+                .name("p99Us").value(micros(percentile(latencies, completed, 0.99)))
+                .name("maxUs").value(micros(completed > 0 ? latencies[completed - 1] : 0))
+                .endObject();
+    }
+
+    private static void runCommands(JsonPayloadWriter writer, AdminAppMessengerManager manager,
+                                    LoopbackAdminService service, int count) throws InterruptedException {
+        service.resetCounts();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) manager.checkDbAsync();
+        boolean done = awaitCondition(() -> service.getReceivedCount(AdminAppMessageTypes.CHECK_DB) >= count);
+        long elapsed = System.nanoTime() - start;
+
+        int received = service.getReceivedCount(AdminAppMessageTypes.CHECK_DB);
+        writer.name("commands").beginObject()
+                .name("received").value(received)
+                .name("timedOut").value(!done)
+                .name("perSecond").value(perSecond(received, elapsed))
+                .endObject();
+    }
+
+    private static void runAnalytics(JsonPayloadWriter writer, AdminAppMessengerManager manager,
+                                     LoopbackAdminService service, int count, boolean batched) throws InterruptedException {
+        boolean wasBatching = manager.isAnalyticsBatchingEnabled();
+        manager.setAnalyticsBatchingEnabled(batched);
+        service.resetCounts();
+        int droppedBefore = manager.getDroppedAnalyticsEventCount();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            manager.sendAnalyticsEventAsync("{\"name\":\"benchmark\",\"index\":" + i + "}");
+        }
+        manager.flushAnalyticsEvents();
+        boolean done = awaitCondition(() -> service.getReceivedAnalyticsEventCount()
+                + manager.getDroppedAnalyticsEventCount() - droppedBefore >= count);
+        long elapsed = System.nanoTime() - start;
+        manager.setAnalyticsBatchingEnabled(wasBatching);
+
+        int received = service.getReceivedAnalyticsEventCount();
+        writer.name(batched ? "analyticsBatched" : "analyticsUnbatched").beginObject()
+                .name("received").value(received)
+                .name("dropped").value(manager.getDroppedAnalyticsEventCount() - droppedBefore)
+                .name("binderMessages").value(service.getReceivedMessageCount())
+                .name("timedOut").value(!done)
+                .name("perSecond").value(perSecond(received, elapsed))
+                .endObject();
+    }
+
+    private static void runStatusPushes(JsonPayloadWriter writer, AdminAppMessengerManager manager, LoopbackAdminService service,
+                                        Listener listener, int count, int payloadChars) throws InterruptedException {
+        int what = AdminAppMessageTypes.DEVICE_STATUS;
+        manager.resetPayloadCache();
+        int deliveredBefore = listener.getMessageCount();
+        int unchangedBefore = manager.getUnchangedPayloadCount(what);
+
+        // Every other push repeats the previous payload, like periodic status updates
+        String[] payloads = new String[(count + 1) / 2];
+        char[] filler = new char[Math.max(payloadChars - 32, 0)];
+        Arrays.fill(filler, 'x');
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = "{\"seq\":" + i + ",\"data\":\"" + new String(filler) + "\"}";
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) service.push(what, payloads[i / 2]);
+        boolean done = awaitCondition(() -> listener.getMessageCount() - deliveredBefore
+                + manager.getUnchangedPayloadCount(what) - unchangedBefore >= count);
+        long elapsed = System.nanoTime() - start;
+
+        int delivered = listener.getMessageCount() - deliveredBefore;
+        int unchanged = manager.getUnchangedPayloadCount(what) - unchangedBefore;
+        writer.name("status").beginObject()
+                .name("delivered").value(delivered)
+                .name("unchanged").value(unchanged)
+                .name("timedOut").value(!done)
+                .name("perSecond").value(perSecond(delivered + unchanged, elapsed))
+                .endObject();
+    }
+
+    private static void runReconnects(JsonPayloadWriter writer, AdminAppMessengerManager manager, LoopbackAdminService service,
+                                      Listener listener, int count) throws InterruptedException {
+        long[] durations = new long[count];
+        int completed = 0;
+        for (int i = 0; i < count; i++) {
+            manager.disconnectFromLocalService();
+            if (!listener.awaitBound(false, PHASE_TIMEOUT_MS)) break;
+            service.resetCounts();
+            // Queued while disconnected, delivered on reconnect
+            manager.checkDbAsync();
+
+            long start = System.nanoTime();
+            manager.connectToLocalService(service.getBinder());
+            if (!listener.awaitBound(true, PHASE_TIMEOUT_MS)) break;
+            if (!awaitCondition(() -> service.getReceivedCount(AdminAppMessageTypes.CHECK_DB) >= 1)) break;
+            durations[completed++] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(durations, 0, completed);
+        writer.name("reconnect").beginObject()
+                .name("completed").value(completed)
+                .name("p50Us").value(micros(percentile(durations, completed, 0.5)))
+                .name("maxUs").value(micros(completed > 0 ? durations[completed - 1] : 0))
+                .endObject();
+    }
+
+    /**
+     * Polls until the condition is met or PHASE_TIMEOUT_MS elapses. Returns whether it was met.
+     */
+    private static boolean awaitCondition(Condition condition) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + PHASE_TIMEOUT_MS;
+        while (!condition.isMet()) {
+            if (SystemClock.elapsedRealtime() > deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private static long percentile(long[] sorted, int count, double percentile) {
+        if (count == 0) return 0;
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1_000;
+    }
+
+    private static long perSecond(int count, long elapsedNanos) {
+        return elapsedNanos > 0 ? count * 1_000_000_000L / elapsedNanos : 0;
+    }
+
+    private static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static long getRuntimeStat(String name) {
+        if (Build.VERSION.SDK_INT < 23) return -1;
+        try {
+            return Long.parseLong(Debug.getRuntimeStat(name));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static long delta(long before, long after) {
+        return before < 0 || after < 0 ? -1 : after - before;
+    }
+}
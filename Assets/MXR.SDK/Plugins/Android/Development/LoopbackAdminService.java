@@ -0,0 +1,195 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * In-process stand-in for the admin service, speaking the AdminAppMessageTypes protocol over a
+ * Messenger on its own thread. Requests that expect a reply (see AdminAppMessageTypes.replyTypeFor)
+ * are answered with the scripted payload for their reply type, or with random json of a configurable
+ * size, after an optional delay. Every other message is only counted. What is counted and replied
+ * lives in LoopbackScript, this class only moves messages. Connect a manager to it with
+ * AdminAppMessengerManager.connectToLocalService, see IpcBenchmark. Only included in development builds.
+ */
+public class LoopbackAdminService {
+    static final String TAG = "LoopbackAdminService";
+
+    static final String THREAD_NAME = "MXR-LoopbackAdmin";
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Messenger messenger;
+
+    // Registered client and chunk reassembly, service thread only
+    private Messenger client;
+    private final PayloadChunking.Assembler incomingChunks = new PayloadChunking.Assembler(SystemClock::elapsedRealtime);
+
+    private final LoopbackScript script = new LoopbackScript();
+    private volatile long replyDelayMs;
+    // What is advertised on every message sent to the client, nothing like a legacy admin app when null
+    private volatile String[] advertisedEncodings;
+    private volatile String[] advertisedCapabilities;
+
+    public LoopbackAdminService() {
+        thread = new HandlerThread(THREAD_NAME);
+        thread.start();
+        handler = new Handler(thread.getLooper()) {
+            @Override
+            public void handleMessage(Message msg) {
+                onMessage(msg);
+            }
+        };
+        messenger = new Messenger(handler);
+    }
+
+    /**
+     * The binder to pass to AdminAppMessengerManager.connectToLocalService
+     */
+    public IBinder getBinder() {
+        return messenger.getBinder();
+    }
+
+    /**
+     * Replies to requests for replyWhat (e.g. DEVICE_STATUS) with this json, or with random json when null
+     */
+    public void setScriptedReply(int replyWhat, String json) {
+        script.setScriptedReply(replyWhat, json);
+    }
+
+    /**
+     * Size of the random json replies, in chars
+     */
+    public void setRandomPayloadChars(int chars) {
+        script.setRandomPayloadChars(chars);
+    }
+
+    /**
+     * Delay before each reply, simulating a busy admin app
+     */
+    public void setReplyDelayMs(long delayMs) {
+        replyDelayMs = Math.max(delayMs, 0);
+    }
+
+    /**
+     * Advertises the given encodings and capabilities on every message sent to the client, see
+     * AdminAppCapabilities. Pass null encodings to behave like a legacy admin app.
+     */
+    public void setAdvertisedCapabilities(String[] encodings, String[] capabilities) {
+        advertisedCapabilities = capabilities;
+        advertisedEncodings = encodings;
+    }
+
+    /**
+     * Sends a message the client did not ask for, like the admin app pushing a status update.
+     * Dropped if no client is registered.
+     */
+    public void push(int what, String json) {
+        handler.post(() -> send(what, json, 0));
+    }
+
+    public int getReceivedCount(int what) {
+        return script.getReceivedCount(what);
+    }
+
+    public int getReceivedMessageCount() {
+        return script.getReceivedMessageCount();
+    }
+
+    /**
+     * Analytics events received, counting each event of a LOG_ANALYTICS_EVENTS batch
+     */
+    public int getReceivedAnalyticsEventCount() {
+        return script.getReceivedAnalyticsEventCount();
+    }
+
+    public void resetCounts() {
+        script.resetCounts();
+    }
+
+    public void stop() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    private void onMessage(Message msg) {
+        int what = msg.what;
+        Bundle bundle = msg.getData();
+        String json;
+        if (AdminAppPayloadCodec.isChunk(bundle)) {
+            json = AdminAppPayloadCodec.acceptChunk(incomingChunks, what, bundle);
+            // Wait for the remaining chunks
+            if (json == null) return;
+        } else {
+            json = AdminAppPayloadCodec.readJson(bundle);
+        }
+        script.onReceived(what, json);
+
+        if (what == AdminAppMessageTypes.REGISTER_CLIENT) {
+            client = msg.replyTo;
+            return;
+        }
+        if (what == AdminAppMessageTypes.UNREGISTER_CLIENT) {
+            client = null;
+            incomingChunks.clear();
+            return;
+        }
+
+        int replyWhat = AdminAppMessageTypes.replyTypeFor(what);
+        if (replyWhat == -1) return;
+
+        int requestId = msg.arg1;
+        long delayMs = replyDelayMs;
+        if (delayMs > 0) {
+            handler.postDelayed(() -> reply(replyWhat, requestId), delayMs);
+        } else {
+            reply(replyWhat, requestId);
+        }
+    }
+
+    private void reply(int replyWhat, int requestId) {
+        send(replyWhat, script.nextReply(replyWhat), requestId);
+    }
+
+    private boolean send(int what, String json, int requestId) {
+        Messenger target = client;
+        if (target == null) return false;
+
+        Bundle bundle = new Bundle();
+        if (json != null) bundle.putString(AdminAppPayloadCodec.KEY_JSON, json);
+        if (requestId != 0) bundle.putInt("requestId", requestId);
+        String[] encodings = advertisedEncodings;
+        if (encodings != null) {
+            String[] capabilities = advertisedCapabilities;
+            bundle.putInt(AdminAppCapabilities.KEY_PROTOCOL_VERSION, AdminAppCapabilities.PROTOCOL_VERSION);
+            bundle.putStringArray(AdminAppCapabilities.KEY_ENCODINGS, encodings);
+            bundle.putStringArray(AdminAppCapabilities.KEY_CAPABILITIES, capabilities != null ? capabilities : new String[0]);
+        }
+
+        Message msg = Message.obtain(null, what);
+        msg.arg1 = requestId;
+        msg.setData(bundle);
+        try {
+            target.send(msg);
+            return true;
+        } catch (RemoteException e) {
+            Log.w(TAG, "Client is gone: " + e.getMessage());
+            client = null;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Protocol side of LoopbackAdminService, free of Messenger and Handler: counts what the client sent
+ * and decides what each request is answered with. Thread safe.
+ */
+class LoopbackScript {
+    private final Map<Integer, String> scriptedReplies = new HashMap<>();
+    private final Map<Integer, Integer> receivedCounts = new HashMap<>();
+    private int receivedMessages;
+    private int receivedAnalyticsEvents;
+    private int invalidAnalyticsBatches;
+
+    private final Random random = new Random(1);
+    private final StringBuilder randomPayload = new StringBuilder();
+    private int nextSequence;
+    private volatile int randomPayloadChars = 512;
+
+    /**
+     * Replies to requests for replyWhat with this json, or with random json when null
+     */
+    synchronized void setScriptedReply(int replyWhat, String json) {
+        if (json == null) {
+            scriptedReplies.remove(replyWhat);
+        } else {
+            scriptedReplies.put(replyWhat, json);
+        }
+    }
+
+    void setRandomPayloadChars(int chars) {
+        randomPayloadChars = Math.max(chars, 16);
+    }
+
+    /**
+     * Counts a message from the client, and each event of a LOG_ANALYTICS_EVENTS batch
+     */
+    void onReceived(int what, String json) {
+        int events = 0;
+        boolean invalidBatch = false;
+        if (what == AdminAppMessageTypes.LOG_ANALYTICS_EVENT) {
+            events = 1;
+        } else if (what == AdminAppMessageTypes.LOG_ANALYTICS_EVENTS && json != null) {
+            try {
+                events = new JSONArray(json).length();
+            } catch (JSONException e) {
+                invalidBatch = true;
+            }
+        }
+
+        synchronized (this) {
+            Integer count = receivedCounts.get(what);
+            receivedCounts.put(what, count != null ? count + 1 : 1);
+            receivedMessages++;
+            receivedAnalyticsEvents += events;
+            if (invalidBatch) invalidAnalyticsBatches++;
+        }
+    }
+
+    /**
+     * The payload of the next reply of type replyWhat (see AdminAppMessageTypes.replyTypeFor), scripted or random
+     */
+    synchronized String nextReply(int replyWhat) {
+        String json = scriptedReplies.get(replyWhat);
+        return json != null ? json : nextRandomPayload();
+    }
+
+    synchronized int getReceivedCount(int what) {
+        Integer count = receivedCounts.get(what);
+        return count != null ? count : 0;
+    }
+
+    synchronized int getReceivedMessageCount() {
+        return receivedMessages;
+    }
+
+    synchronized int getReceivedAnalyticsEventCount() {
+        return receivedAnalyticsEvents;
+    }
+
+    synchronized int getInvalidAnalyticsBatchCount() {
+        return invalidAnalyticsBatches;
+    }
+
+    synchronized void resetCounts() {
+        receivedCounts.clear();
+        receivedMessages = 0;
+        receivedAnalyticsEvents = 0;
+        invalidAnalyticsBatches = 0;
+    }
+
+    private String nextRandomPayload() {
+        int chars = randomPayloadChars;
+        randomPayload.setLength(0);
+        randomPayload.append("{\"seq\":").append(nextSequence++).append(",\"data\":\"");
+        int dataChars = Math.max(chars - randomPayload.length() - 2, 0);
+        for (int i = 0; i < dataChars; i++) {
+            randomPayload.append((char) ('a' + random.nextInt(26)));
+        }
+        randomPayload.append("\"}");
+        return randomPayload.toString();
+    }
+}
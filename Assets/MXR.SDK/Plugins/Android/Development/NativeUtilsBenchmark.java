@@ -0,0 +1,212 @@
+package com.mightyimmersion.customlauncher;
+
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Microbenchmarks of the NativeUtils hot paths, run on the device against its real PackageManager:
+ * package lookups, bulk metadata, the installed app list, admin app lookup and icon rendering.
+ * runCatalogSizes runs the PackageIndex lookups against synthetic catalogs of a given number of
+ * packages instead, to see how they scale with the catalog.
+ *
+ * Lookups query packageCount names, cycling through installed packages and names that are not
+ * installed. Each operation is warmed up, then repeated until MEASURE_MS elapses. Results report
+ * ops per second, nanoseconds per op and bytes allocated per op. Allocations come from ART runtime
+ * stats (API 23+, -1 otherwise) and cover the whole process, so keep the launcher idle meanwhile.
+ *
+ * Blocks for a few seconds, so never call it from the main thread. From Unity:
+ * new AndroidJavaClass("com.mightyimmersion.customlauncher.NativeUtilsBenchmark").CallStatic<string>("run", nativeUtils, 500, 192)
+ * new AndroidJavaClass("com.mightyimmersion.customlauncher.NativeUtilsBenchmark").CallStatic<string>("runCatalogSizes", new[] { 50, 200, 500, 1000, 2000 }, 500)
+ * Only included in development builds, like everything in Development/.
+ */
+public class NativeUtilsBenchmark {
+    static final String TAG = "NativeUtilsBenchmark";
+
+    private static final long WARMUP_MS = 200;
+    private static final long MEASURE_MS = 1_000;
+    private static final String MISSING_PACKAGE_PREFIX = "com.mightyimmersion.benchmark.missing";
+    private static final String SYNTHETIC_PACKAGE_PREFIX = "com.mightyimmersion.benchmark.app";
+    private static final String SYNTHETIC_ADMIN_APP_PACKAGE = "com.mightyimmersion.mightyplatform.adminapp";
+
+    private interface Operation {
+        void run(int index);
+    }
+
+    /**
+     * Runs all benchmarks and returns the results as json.
+     *
+     * @param packageCount Number of package names queried, installed and not installed
+     * @param iconSize     Size icons are rendered at, 0 for their intrinsic size
+     */
+    public static String run(NativeUtils nativeUtils, int packageCount, int iconSize) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("NativeUtilsBenchmark blocks, run it off the main thread");
+        }
+        PackageIndex packageIndex = nativeUtils.getPackageIndex();
+        packageIndex.awaitReady(10_000);
+        IconLoader iconLoader = nativeUtils.getIconLoader();
+
+        List<String> installed = new ArrayList<>();
+        for (PackageIndex.Entry entry : packageIndex.getAll()) installed.add(entry.packageName);
+        String[] names = queryNames(installed, Math.max(packageCount, 1));
+        String[] installedNames = installed.toArray(new String[0]);
+
+        JsonPayloadWriter writer = JsonPayloadWriter.obtain().beginObject()
+                .name("packageCount").value(names.length)
+                .name("installedPackages").value(installedNames.length)
+                .name("iconSize").value(iconSize);
+
+        measure(writer, "isAppInstalled", i -> nativeUtils.isAppInstalled(names[i % names.length]));
+        measure(writer, "getInstalledPackagedVersionName", i -> nativeUtils.getInstalledPackagedVersionName(names[i % names.length]));
+        measure(writer, "getAdminServiceComponentName", i -> nativeUtils.getAdminServiceComponentName());
+        measure(writer, "getAppMetadata", i -> nativeUtils.getAppMetadata(names));
+        measure(writer, "getPackages", i -> nativeUtils.getPackages());
+
+        if (installedNames.length > 0) {
+            // Memory cache hits after the warmup, then full renders that bypass the caches
+            measure(writer, "getIconCached", i -> nativeUtils.getIcon(installedNames[i % installedNames.length], iconSize));
+            measure(writer, "getIconUncached", i -> iconLoader.load(installedNames[i % installedNames.length], iconSize));
+        }
+
+        String result = writer.endObject().build();
+        Log.i(TAG, result);
+        return result;
+    }
+
+    /**
+     * Runs the PackageIndex lookups behind NativeUtils against synthetic catalogs, one per size in
+     * catalogSizes, and returns the results as json with one entry per catalog size. No
+     * PackageManager calls are involved, so this measures the index itself and how it scales.
+     * Icons are not covered, synthetic packages have none.
+     *
+     * @param catalogSizes Number of installed packages in each catalog, e.g. 50 to 2000
+     * @param packageCount Number of package names queried, installed and not installed
+     */
+    public static String runCatalogSizes(int[] catalogSizes, int packageCount) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("NativeUtilsBenchmark blocks, run it off the main thread");
+        }
+
+        JsonPayloadWriter writer = JsonPayloadWriter.obtain().beginObject()
+                .name("packageCount").value(Math.max(packageCount, 1))
+                .name("catalogs").beginArray();
+        for (int catalogSize : catalogSizes) {
+            SyntheticPackageSource source = new SyntheticPackageSource(Math.max(catalogSize, 1));
+            PackageIndex packageIndex = new PackageIndex(source);
+            if (!packageIndex.awaitReady(10_000)) Log.w(TAG, "Index of " + catalogSize + " packages not ready");
+
+            String[] names = queryNames(source.packageNames, Math.max(packageCount, 1));
+            writer.beginObject().name("catalogSize").value(source.packageNames.size());
+            measure(writer, "get", i -> packageIndex.get(names[i % names.length]));
+            measure(writer, "peek", i -> packageIndex.peek(names));
+            measure(writer, "getAdminApp", i -> packageIndex.getAdminApp());
+            measure(writer, "getAllWithLabels", i -> {
+                for (PackageIndex.Entry entry : packageIndex.getAll()) packageIndex.getLabel(entry);
+            });
+            writer.endObject();
+            packageIndex.shutdown();
+        }
+
+        String result = writer.endArray().endObject().build();
+        Log.i(TAG, result);
+        return result;
+    }
+
+    /**
+     * Catalog of packageCount made up packages, the first of them the admin app, and all but every
+     * fourth with a launcher activity
+     */
+    private static class SyntheticPackageSource implements PackageIndex.Source {
+        final List<String> packageNames;
+        private final Map<String, PackageInfo> packages;
+        private final Map<String, String> launchClasses;
+
+        SyntheticPackageSource(int packageCount) {
+            packageNames = new ArrayList<>(packageCount);
+            packages = new HashMap<>(packageCount * 2);
+            launchClasses = new HashMap<>(packageCount * 2);
+            for (int i = 0; i < packageCount; i++) {
+                PackageInfo packageInfo = new PackageInfo();
+                packageInfo.packageName = i == 0 ? SYNTHETIC_ADMIN_APP_PACKAGE : SYNTHETIC_PACKAGE_PREFIX + i;
+                packageInfo.versionCode = i + 1;
+                packageInfo.versionName = "1.0." + i;
+                packageNames.add(packageInfo.packageName);
+                packages.put(packageInfo.packageName, packageInfo);
+                if (i % 4 != 3) launchClasses.put(packageInfo.packageName, packageInfo.packageName + ".MainActivity");
+            }
+        }
+
+        @Override
+        public List<PackageInfo> getInstalledPackages() {
+            return new ArrayList<>(packages.values());
+        }
+
+        @Override
+        public PackageInfo getPackageInfo(String packageName) throws PackageManager.NameNotFoundException {
+            PackageInfo packageInfo = packages.get(packageName);
+            if (packageInfo == null) throw new PackageManager.NameNotFoundException(packageName);
+            return packageInfo;
+        }
+
+        @Override
+        public Map<String, String> queryLaunchClasses(String packageName) {
+            if (packageName == null) return new HashMap<>(launchClasses);
+            Map<String, String> result = new HashMap<>();
+            String launchClass = launchClasses.get(packageName);
+            if (launchClass != null) result.put(packageName, launchClass);
+            return result;
+        }
+
+        @Override
+        public String loadLabel(PackageInfo packageInfo) {
+            return "App " + packageInfo.versionName;
+        }
+    }
+
+    /**
+     * Alternates installed packages with names that are not installed, so lookups see both hits and misses
+     */
+    private static String[] queryNames(List<String> installed, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            boolean hit = i % 2 == 0 && !installed.isEmpty();
+            names[i] = hit ? installed.get((i / 2) % installed.size()) : MISSING_PACKAGE_PREFIX + i;
+        }
+        return names;
+    }
+
+    private static void measure(JsonPayloadWriter writer, String name, Operation operation) {
+        runFor(operation, WARMUP_MS);
+
+        long allocatedBefore = IpcBenchmark.getRuntimeStat("art.gc.bytes-allocated");
+        long start = System.nanoTime();
+        int ops = runFor(operation, MEASURE_MS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = IpcBenchmark.delta(allocatedBefore, IpcBenchmark.getRuntimeStat("art.gc.bytes-allocated"));
+
+        writer.name(name).beginObject()
+                .name("ops").value(ops)
+                .name("perSecond").value(ops * 1_000_000_000L / Math.max(elapsed, 1))
+                .name("nsPerOp").value(elapsed / ops)
+                .name("bytesPerOp").value(allocated < 0 ? -1 : allocated / ops)
+                .endObject();
+    }
+
+    private static int runFor(Operation operation, long durationMs) {
+        long deadline = SystemClock.elapsedRealtime() + durationMs;
+        int ops = 0;
+        do {
+            // Check the clock every 16 ops, so fast operations are not dominated by it
+            for (int i = 0; i < 16; i++) operation.run(ops++);
+        } while (SystemClock.elapsedRealtime() < deadline);
+        return ops;
+    }
+}
@@ -0,0 +1,460 @@
+package com.mightyimmersion.customlauncher;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads app icons as PNG bytes on a small worker pool.
+ * Icons are rendered at the requested size and kept in an in-memory LRU cache and in a disk cache
+ * under the app's cache dir, both keyed by package name, versionCode and size, so an app update
+ * never serves a stale icon and a cold start after a reboot does not re-encode every icon.
+ * Each worker reuses its bitmap, canvas and output stream between icons. Synchronous calls render
+ * on the caller thread into buffers of their own, which are released when the call returns.
+ */
+public class IconLoader {
+    static final String TAG = "IconLoader";
+
+    public interface OnIconLoadedListener {
+        /**
+         * Called on the main thread. png is null if the icon could not be loaded.
+         */
+        void onIconLoaded(String packageName, int size, byte[] png);
+    }
+
+    public interface OnIconFileReadyListener {
+        /**
+         * Called on the main thread. path is null if the icon could not be loaded.
+         */
+        void onIconFileReady(String packageName, int size, String path);
+    }
+
+    public interface OnIconPixelsCopiedListener {
+        /**
+         * Called on the main thread once the destination buffer has been filled, or not.
+         */
+        void onIconPixelsCopied(String packageName, int size, boolean copied);
+    }
+
+    private static final int WORKER_COUNT = 2;
+    private static final int DEFAULT_ICON_SIZE = 192;
+    private static final int MEMORY_CACHE_BYTES = 8 * 1024 * 1024; // 8 MB
+    private static final String DISK_CACHE_DIR_NAME = "mxr-icons";
+
+    private static class WorkerBuffers {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream(64 * 1024);
+        final Canvas canvas = new Canvas();
+        Bitmap bitmap;
+        // For copyIconPixels
+        int[] pixels;
+        byte[] rgba;
+    }
+
+    private final PackageManager packageManager;
+    private final PackageIndex packageIndex;
+    // One directory per package holding <versionCode>_<size>.png files
+    private final File diskCacheDir;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService workers;
+    // Only set on the worker threads
+    private final ThreadLocal<WorkerBuffers> workerBuffers = new ThreadLocal<>();
+    private final LruCache<String, byte[]> memoryCache = new LruCache<String, byte[]>(MEMORY_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, byte[] value) {
+            return value.length;
+        }
+    };
+    // Requests for an icon that is already being loaded wait for that load instead of starting another
+    private final Map<String, List<OnIconLoadedListener>> pending = new HashMap<>();
+
+    public IconLoader(Context context, PackageIndex _packageIndex) {
+        packageManager = context.getPackageManager();
+        packageIndex = _packageIndex;
+        diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR_NAME);
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(WORKER_COUNT, r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            workerBuffers.set(new WorkerBuffers());
+            r.run();
+        }, TAG + "-" + threadCount.incrementAndGet()));
+        workers.execute(this::pruneDiskCache);
+    }
+
+    /**
+     * Loads an icon on the calling thread, using the cache when possible.
+     * A size of 0 or less renders the icon at its intrinsic size.
+     */
+    public byte[] getIcon(String packageName, int size) {
+        PackageIndex.Entry entry = packageIndex.get(packageName);
+        if (entry == null) return null;
+        return getIcon(entry, size);
+    }
+
+    /**
+     * Returns the path of the cached PNG file of an icon, rendering it on the calling thread first
+     * if needed. Reading the file avoids passing the encoded icon across JNI.
+     */
+    public String getIconPath(String packageName, int size) {
+        PackageIndex.Entry entry = packageIndex.get(packageName);
+        if (entry == null) return null;
+
+        File file = iconFile(entry, size);
+        if (file.exists()) return file.getAbsolutePath();
+        getIcon(entry, size);
+        return file.exists() ? file.getAbsolutePath() : null;
+    }
+
+    /**
+     * Same as getIconPath, but renders on a worker thread and delivers the path on the main thread.
+     */
+    public void getIconPathAsync(String packageName, int size, OnIconFileReadyListener listener) {
+        workers.execute(() -> {
+            String path = getIconPath(packageName, size);
+            mainHandler.post(() -> listener.onIconFileReady(packageName, size, path));
+        });
+    }
+
+    private byte[] getIcon(PackageIndex.Entry entry, int size) {
+        String key = cacheKey(entry, size);
+        byte[] png = memoryCache.get(key);
+        if (png != null) {
+            MXRMetrics.count("icon.memoryHit");
+            return png;
+        }
+
+        File file = iconFile(entry, size);
+        png = readFile(file);
+        if (png == null) {
+            MXRMetrics.count("icon.miss");
+            png = load(entry.packageName, size);
+            if (png != null) writeFile(file, png);
+        } else {
+            MXRMetrics.count("icon.diskHit");
+        }
+        if (png != null) memoryCache.put(key, png);
+        return png;
+    }
+
+    /**
+     * Loads an icon on a worker thread and delivers it to the listener on the main thread.
+     * Cached icons are delivered without touching a worker once the package index is ready.
+     */
+    public void getIconAsync(String packageName, int size, OnIconLoadedListener listener) {
+        if (packageIndex.isReady()) {
+            requestIcon(packageName, packageIndex.get(packageName), size, listener);
+        } else {
+            // Until the index is ready the lookup goes through PackageManager, keep it off the calling thread
+            workers.execute(() -> requestIcon(packageName, packageIndex.get(packageName), size, listener));
+        }
+    }
+
+    private void requestIcon(String packageName, PackageIndex.Entry entry, int size, OnIconLoadedListener listener) {
+        if (entry == null) {
+            mainHandler.post(() -> listener.onIconLoaded(packageName, size, null));
+            return;
+        }
+        String key = cacheKey(entry, size);
+
+        byte[] cached = memoryCache.get(key);
+        if (cached != null) {
+            mainHandler.post(() -> listener.onIconLoaded(packageName, size, cached));
+            return;
+        }
+
+        synchronized (pending) {
+            List<OnIconLoadedListener> waiting = pending.get(key);
+            if (waiting != null) {
+                waiting.add(listener);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(listener);
+            pending.put(key, waiting);
+        }
+
+        workers.execute(() -> {
+            byte[] png = getIcon(entry, size);
+            List<OnIconLoadedListener> listeners;
+            synchronized (pending) {
+                listeners = pending.remove(key);
+            }
+            mainHandler.post(() -> {
+                for (OnIconLoadedListener l : listeners) {
+                    l.onIconLoaded(packageName, size, png);
+                }
+            });
+        });
+    }
+
+    /**
+     * Renders an icon at size x size pixels and copies its raw RGBA pixels (8 bits per channel,
+     * straight alpha as Texture2D.LoadRawTextureData expects for RGBA32) into dst, starting at its
+     * current position. This skips PNG encoding and decoding entirely. dst needs at least
+     * size * size * 4 bytes remaining; a direct buffer lets the caller upload the pixels without another copy.
+     * Set flipVertically for consumers such as Unity whose textures start at the bottom row.
+     * Raw pixels are not cached. Returns whether dst was filled.
+     */
+    public boolean copyIconPixels(String packageName, int size, ByteBuffer dst, boolean flipVertically) {
+        if (size <= 0 || dst == null || dst.remaining() < size * size * 4) {
+            Log.e(TAG, "copyIconPixels needs a positive size and a buffer of size * size * 4 bytes");
+            return false;
+        }
+        try {
+            long start = MXRMetrics.start();
+            Drawable drawable = packageManager.getApplicationIcon(packageName);
+            WorkerBuffers buffers = obtainBuffers();
+            try {
+                copyStraightAlpha(buffers, render(buffers, drawable, size, flipVertically), dst);
+            } finally {
+                releaseBuffers(buffers);
+            }
+            MXRMetrics.recordSince("icon.copyPixelsUs", start);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Could not copy icon pixels for " + packageName + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Same as copyIconPixels, but renders on a worker thread and reports the result on the main thread.
+     * dst must not be touched until the listener is called.
+     */
+    public void copyIconPixelsAsync(String packageName, int size, ByteBuffer dst, boolean flipVertically,
+                                    OnIconPixelsCopiedListener listener) {
+        workers.execute(() -> {
+            boolean copied = copyIconPixels(packageName, size, dst, flipVertically);
+            mainHandler.post(() -> listener.onIconPixelsCopied(packageName, size, copied));
+        });
+    }
+
+    /**
+     * Renders the icons of several packages into the caches on the worker threads, so later
+     * requests are served from memory. onDone runs on a worker once all icons are done, and may be null.
+     */
+    public void prefetch(Collection<String> packageNames, int size, Runnable onDone) {
+        AtomicInteger remaining = new AtomicInteger(packageNames.size());
+        if (remaining.get() == 0 && onDone != null) onDone.run();
+
+        for (String packageName : packageNames) {
+            workers.execute(() -> {
+                try {
+                    PackageIndex.Entry entry = packageIndex.get(packageName);
+                    if (entry != null) getIcon(entry, size);
+                } finally {
+                    if (remaining.decrementAndGet() == 0 && onDone != null) onDone.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops the cached icons of a package that no longer match its installed versionCode, in memory
+     * and on disk, or all of them if it was removed. Call this after the package index has been
+     * refreshed, so icons rendered for the new version are kept.
+     */
+    public void invalidate(String packageName) {
+        if (packageName == null) return;
+        PackageIndex.Entry entry = packageIndex.get(packageName);
+        String prefix = packageName + ":";
+        String currentPrefix = entry != null ? prefix + entry.versionCode + ":" : null;
+        for (String key : memoryCache.snapshot().keySet()) {
+            if (key.startsWith(prefix) && (currentPrefix == null || !key.startsWith(currentPrefix))) memoryCache.remove(key);
+        }
+        workers.execute(() -> pruneDirectory(new File(diskCacheDir, packageName), entry));
+    }
+
+    private String cacheKey(PackageIndex.Entry entry, int size) {
+        return entry.packageName + ":" + entry.versionCode + ":" + Math.max(size, 0);
+    }
+
+    private File iconFile(PackageIndex.Entry entry, int size) {
+        return new File(new File(diskCacheDir, entry.packageName), entry.versionCode + "_" + Math.max(size, 0) + ".png");
+    }
+
+    // Removes icons of packages uninstalled or updated while the app was not running
+    private void pruneDiskCache() {
+        File[] packageDirs = diskCacheDir.listFiles();
+        if (packageDirs == null) return;
+        for (File packageDir : packageDirs) {
+            pruneDirectory(packageDir, packageIndex.get(packageDir.getName()));
+        }
+    }
+
+    // Deletes the icons of a package written under another versionCode, or all if entry is null
+    private static void pruneDirectory(File packageDir, PackageIndex.Entry entry) {
+        if (entry == null) {
+            deleteDirectory(packageDir);
+            return;
+        }
+        File[] files = packageDir.listFiles();
+        if (files == null) return;
+        String prefix = entry.versionCode + "_";
+        for (File file : files) {
+            if (!file.getName().startsWith(prefix)) file.delete();
+        }
+    }
+
+    private static byte[] readFile(File file) {
+        if (!file.isFile()) return null;
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) return null;
+                offset += read;
+            }
+            return bytes;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read cached icon " + file + ": " + e);
+            return null;
+        }
+    }
+
+    // Writes to a temp file first and renames it, so readers never see a partially written icon
+    private static void writeFile(File file, byte[] bytes) {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) return;
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache icon " + file + ": " + e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+
+    private static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Renders and encodes an icon on the calling thread, bypassing both caches
+     */
+    byte[] load(String packageName, int size) {
+        try {
+            long start = MXRMetrics.start();
+            Drawable drawable = packageManager.getApplicationIcon(packageName);
+            MXRMetrics.recordSince("pm.getApplicationIconUs", start);
+            return encode(drawable, size);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, e.toString());
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, "Could not load icon for " + packageName + ": " + e);
+            return null;
+        }
+    }
+
+    private byte[] encode(Drawable drawable, int size) {
+        long start = MXRMetrics.start();
+        WorkerBuffers buffers = obtainBuffers();
+        byte[] png;
+        try {
+            Bitmap bitmap = render(buffers, drawable, size, false);
+            buffers.stream.reset();
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, buffers.stream);
+            png = buffers.stream.toByteArray();
+        } finally {
+            releaseBuffers(buffers);
+        }
+        MXRMetrics.recordSince("icon.encodeUs", start);
+        return png;
+    }
+
+    // Bitmaps store premultiplied alpha, getPixels returns straight alpha ARGB which is reordered to RGBA
+    private static void copyStraightAlpha(WorkerBuffers buffers, Bitmap bitmap, ByteBuffer dst) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int count = width * height;
+        if (buffers.pixels == null || buffers.pixels.length != count) {
+            buffers.pixels = new int[count];
+            buffers.rgba = new byte[count * 4];
+        }
+        int[] pixels = buffers.pixels;
+        byte[] rgba = buffers.rgba;
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        for (int i = 0, o = 0; i < count; i++, o += 4) {
+            int color = pixels[i];
+            rgba[o] = (byte) (color >> 16);
+            rgba[o + 1] = (byte) (color >> 8);
+            rgba[o + 2] = (byte) color;
+            rgba[o + 3] = (byte) (color >>> 24);
+        }
+        dst.put(rgba, 0, count * 4);
+    }
+
+    // The buffers of the current worker thread, or new ones for a caller thread
+    private WorkerBuffers obtainBuffers() {
+        WorkerBuffers buffers = workerBuffers.get();
+        return buffers != null ? buffers : new WorkerBuffers();
+    }
+
+    // Frees buffers that were created for a caller thread, worker buffers are kept
+    private void releaseBuffers(WorkerBuffers buffers) {
+        if (buffers == workerBuffers.get()) return;
+        if (buffers.bitmap != null) buffers.bitmap.recycle();
+        buffers.bitmap = null;
+        buffers.pixels = null;
+        buffers.rgba = null;
+    }
+
+    // Draws the drawable into the bitmap of the given buffers, reusing it when the size matches
+    private Bitmap render(WorkerBuffers buffers, Drawable drawable, int size, boolean flipVertically) {
+        int width = size > 0 ? size : drawable.getIntrinsicWidth();
+        int height = size > 0 ? size : drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) width = height = DEFAULT_ICON_SIZE;
+
+        Bitmap bitmap = buffers.bitmap;
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            if (bitmap != null) bitmap.recycle();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            buffers.bitmap = bitmap;
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        Canvas canvas = buffers.canvas;
+        canvas.setBitmap(bitmap);
+        canvas.save();
+        if (flipVertically) {
+            canvas.translate(0, height);
+            canvas.scale(1, -1);
+        }
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+        canvas.restore();
+        canvas.setBitmap(null);
+        return bitmap;
+    }
+}
@@ -0,0 +1,126 @@
+package com.mightyimmersion.customlauncher;
+
+import android.os.FileObserver;
+import android.os.Handler;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Watches json files written by the admin app and reports their contents whenever they change,
+ * so settings updates are picked up without IPC or polling. Files are read through a read-only
+ * memory map. The parent directory is observed rather than the file itself, as the admin app
+ * replaces files atomically and an observer on the old file would stop firing.
+ */
+public class JsonFileService {
+    static final String TAG = "JsonFileService";
+
+    private static final long DEBOUNCE_MS = 100;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int EVENTS = FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.CREATE;
+
+    public interface OnFileChangedListener {
+        void onFileChanged(int what, String json);
+    }
+
+    private class WatchedFile {
+        final int what;
+        final File file;
+        final FileObserver observer;
+        final Runnable reload = this::reload;
+
+        WatchedFile(int _what, File _file) {
+            what = _what;
+            file = _file;
+            observer = new FileObserver(file.getParent(), EVENTS) {
+                @Override
+                public void onEvent(int event, String path) {
+                    if (!file.getName().equals(path)) return;
+                    // Writers often touch a file several times in a row, only read it once they are done
+                    handler.removeCallbacks(reload);
+                    handler.postDelayed(reload, DEBOUNCE_MS);
+                }
+            };
+        }
+
+        // Always reads the file: lastModified has 1s granularity on many filesystems, so it misses
+        // same-size rewrites. Unchanged contents are dropped by the listener (PayloadChangeTracker).
+        private void reload() {
+            String json = read(file);
+            // Empty while being rewritten, the next event will carry the contents
+            if (json == null || json.trim().isEmpty()) return;
+
+            listener.onFileChanged(what, json);
+        }
+    }
+
+    private final Handler handler;
+    private final OnFileChangedListener listener;
+    private final Map<String, WatchedFile> watchedFiles = new HashMap<>();
+
+    /**
+     * @param _handler  Handler that file reads and listener calls run on
+     */
+    public JsonFileService(Handler _handler, OnFileChangedListener _listener) {
+        handler = _handler;
+        listener = _listener;
+    }
+
+    /**
+     * Starts reporting changes to a file as messages of type what. The current contents are not
+     * reported, only later changes. Returns false if the directory of the file does not exist.
+     */
+    public synchronized boolean watch(int what, String path) {
+        File file = new File(path);
+        File directory = file.getParentFile();
+        if (directory == null || !directory.isDirectory()) {
+            Log.w(TAG, "Cannot watch " + path + ", its directory does not exist");
+            return false;
+        }
+
+        unwatch(path);
+        WatchedFile watchedFile = new WatchedFile(what, file);
+        watchedFiles.put(path, watchedFile);
+        watchedFile.observer.startWatching();
+        return true;
+    }
+
+    public synchronized void unwatch(String path) {
+        WatchedFile watchedFile = watchedFiles.remove(path);
+        if (watchedFile == null) return;
+        watchedFile.observer.stopWatching();
+        handler.removeCallbacks(watchedFile.reload);
+    }
+
+    public synchronized void unwatchAll() {
+        for (WatchedFile watchedFile : watchedFiles.values()) {
+            watchedFile.observer.stopWatching();
+            handler.removeCallbacks(watchedFile.reload);
+        }
+        watchedFiles.clear();
+    }
+
+    /**
+     * Reads a whole file as UTF-8 through a memory map. Returns null if it cannot be read.
+     */
+    public static String read(File file) {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            long size = channel.size();
+            if (size == 0 || size > Integer.MAX_VALUE) return null;
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return UTF_8.decode(buffer).toString();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read " + file + ": " + e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+/**
+ * Minimal streaming json writer for outgoing admin app payloads. One instance is kept per thread
+ * and its buffer is reused, so building a payload only allocates the resulting String.
+ * All strings are escaped, so any SSID, password or package name produces valid json.
+ *
+ * Usage: JsonPayloadWriter.obtain().beginObject().name("ssid").value(ssid).endObject().build()
+ */
+final class JsonPayloadWriter {
+    private static final int MAX_DEPTH = 8;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<JsonPayloadWriter> WRITERS = new ThreadLocal<JsonPayloadWriter>() {
+        @Override
+        protected JsonPayloadWriter initialValue() {
+            return new JsonPayloadWriter();
+        }
+    };
+
+    private final StringBuilder builder = new StringBuilder(256);
+    // Whether the current object/array already has an element, per nesting level
+    private final boolean[] hasElement = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    private JsonPayloadWriter() {
+    }
+
+    /**
+     * Returns this thread's writer, emptied
+     */
+    static JsonPayloadWriter obtain() {
+        JsonPayloadWriter writer = WRITERS.get();
+        writer.builder.setLength(0);
+        writer.depth = 0;
+        writer.afterName = false;
+        return writer;
+    }
+
+    JsonPayloadWriter beginObject() {
+        return open('{');
+    }
+
+    JsonPayloadWriter endObject() {
+        return close('}');
+    }
+
+    JsonPayloadWriter beginArray() {
+        return open('[');
+    }
+
+    JsonPayloadWriter endArray() {
+        return close(']');
+    }
+
+    JsonPayloadWriter name(String name) {
+        separate();
+        writeString(name);
+        builder.append(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonPayloadWriter value(String value) {
+        separate();
+        if (value == null) {
+            builder.append("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    JsonPayloadWriter value(long value) {
+        separate();
+        builder.append(value);
+        return this;
+    }
+
+    JsonPayloadWriter value(boolean value) {
+        separate();
+        builder.append(value);
+        return this;
+    }
+
+    /**
+     * Writes an array of strings, sizing the buffer once for the whole array
+     */
+    JsonPayloadWriter value(String[] values) {
+        if (values == null) return value((String) null);
+
+        int estimate = 2;
+        for (String value : values) estimate += (value != null ? value.length() : 4) + 3;
+        builder.ensureCapacity(builder.length() + estimate);
+
+        beginArray();
+        for (String value : values) value(value);
+        return endArray();
+    }
+
+    String build() {
+        return builder.toString();
+    }
+
+    private JsonPayloadWriter open(char bracket) {
+        separate();
+        builder.append(bracket);
+        if (depth == MAX_DEPTH) throw new IllegalStateException("json nested too deep");
+        hasElement[depth++] = false;
+        return this;
+    }
+
+    private JsonPayloadWriter close(char bracket) {
+        depth--;
+        builder.append(bracket);
+        return this;
+    }
+
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth == 0) return;
+        if (hasElement[depth - 1]) builder.append(',');
+        hasElement[depth - 1] = true;
+    }
+
+    private void writeString(String value) {
+        builder.append('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+
+            builder.append(value, start, i);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                case '\b': builder.append("\\b"); break;
+                case '\f': builder.append("\\f"); break;
+                default:
+                    builder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        builder.append(value, start, length);
+        builder.append('"');
+    }
+}
@@ -0,0 +1,246 @@
+package com.mightyimmersion.customlauncher;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares launcher state in parallel as early as possible, before Unity asks for it:
+ * - packageIndex: the installed package scan (see PackageIndex)
+ * - files: the json state files, read into memory
+ * - icons: the icons of launchable apps, rendered into the icon caches
+ * - adminService: binding and registering with the admin service, then requesting its state
+ * Unity then attaches to the NativeUtils and AdminAppMessengerManager created here instead of
+ * creating its own, and receives the admin app messages that arrived in the meantime.
+ * Each phase records how long it took, see getTimingsJson.
+ */
+public class LauncherStartup {
+    static final String TAG = "LauncherStartup";
+
+    public static final String PHASE_PACKAGE_INDEX = "packageIndex";
+    public static final String PHASE_FILES = "files";
+    public static final String PHASE_ICONS = "icons";
+    public static final String PHASE_ADMIN_SERVICE = "adminService";
+    private static final String[] PHASES = { PHASE_PACKAGE_INDEX, PHASE_FILES, PHASE_ICONS, PHASE_ADMIN_SERVICE };
+
+    private static final long PACKAGE_INDEX_TIMEOUT_MS = 10_000;
+    private static final long FILES_TIMEOUT_MS = 1_000;
+
+    private static LauncherStartup instance;
+
+    private static class LoadedFile {
+        final String contents;
+        final long lastModified;
+
+        LoadedFile(String _contents, long _lastModified) {
+            contents = _contents;
+            lastModified = _lastModified;
+        }
+    }
+
+    private static class BufferedMessage {
+        final int what;
+        final String json;
+
+        BufferedMessage(int _what, String _json) {
+            what = _what;
+            json = _json;
+        }
+    }
+
+    private final long startTime = SystemClock.elapsedRealtime();
+    private final Map<String, Long> phaseDurations = new ConcurrentHashMap<>();
+    private final Map<String, LoadedFile> files = new ConcurrentHashMap<>();
+    private final CountDownLatch filesLoaded = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> new Thread(r, TAG));
+
+    private final NativeUtils nativeUtils;
+    private final StartupListener messengerListener = new StartupListener();
+    private final AdminAppMessengerManager messenger;
+
+    /**
+     * Starts preparing launcher state. Safe to call more than once, later calls return the running instance.
+     * @param filePaths json files to read into memory, missing files are skipped
+     * @param iconSize size to prefetch icons at, 0 for their intrinsic size (as NativeUtils.getIcon)
+     */
+    public static synchronized LauncherStartup start(Context context, String[] filePaths, int iconSize) {
+        if (instance == null) instance = new LauncherStartup(context.getApplicationContext(), filePaths, iconSize);
+        return instance;
+    }
+
+    /**
+     * The started instance, or null if start was not called
+     */
+    public static synchronized LauncherStartup getInstance() {
+        return instance;
+    }
+
+    private LauncherStartup(Context context, String[] filePaths, int iconSize) {
+        // Starts the package scan on the index thread
+        nativeUtils = new NativeUtils(context);
+        // Starts binding on the IPC thread. Requests sent before binding are queued.
+        messenger = new AdminAppMessengerManager(context, messengerListener, nativeUtils);
+        messenger.getRuntimeSettingsAsync();
+        messenger.getDeviceStatusAsync();
+        messenger.getDeviceDataAsync();
+        messenger.getWifiConnectionStatusAsync();
+        messenger.getWifiNetworksAsync();
+
+        executor.execute(() -> loadFiles(filePaths));
+        executor.execute(() -> {
+            boolean ready = nativeUtils.getPackageIndex().awaitReady(PACKAGE_INDEX_TIMEOUT_MS);
+            endPhase(PHASE_PACKAGE_INDEX);
+            if (ready) {
+                prefetchIcons(iconSize);
+            } else {
+                Log.w(TAG, "Package index not ready, skipping icon prefetch");
+                endPhase(PHASE_ICONS);
+            }
+        });
+        // Runs the two tasks above, then lets its threads end
+        executor.shutdown();
+    }
+
+    public NativeUtils getNativeUtils() {
+        return nativeUtils;
+    }
+
+    /**
+     * Hands the messenger over to its actual listener. Binding state and the messages received
+     * so far are replayed to it first, then it receives everything as usual.
+     */
+    public AdminAppMessengerManager attachMessenger(AdminAppMessengerManager.AdminAppMessengerListener listener) {
+        // The new listener has none of the state delivered to a previous one
+        messenger.resetPayloadCache();
+        messengerListener.attach(listener);
+        return messenger;
+    }
+
+    /**
+     * Contents of a file read during startup, or null if it was missing or has changed since.
+     * Waits briefly for the files phase if it is still running.
+     */
+    public String getFileContents(String path) {
+        try {
+            filesLoaded.await(FILES_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        LoadedFile file = files.get(path);
+        if (file == null || new File(path).lastModified() != file.lastModified) return null;
+        return file.contents;
+    }
+
+    public boolean isComplete() {
+        return phaseDurations.size() == PHASES.length;
+    }
+
+    /**
+     * Milliseconds from start to the end of each finished phase, e.g. {"packageIndex":180,"files":12}
+     */
+    public String getTimingsJson() {
+        JsonPayloadWriter writer = JsonPayloadWriter.obtain().beginObject();
+        for (String phase : PHASES) {
+            Long duration = phaseDurations.get(phase);
+            if (duration != null) writer.name(phase).value(duration);
+        }
+        return writer.endObject().build();
+    }
+
+    private void loadFiles(String[] filePaths) {
+        try {
+            if (filePaths == null) return;
+            for (String path : filePaths) {
+                File file = new File(path);
+                long lastModified = file.lastModified();
+                // 0 when the file does not exist
+                if (lastModified == 0) continue;
+                String contents = JsonFileService.read(file);
+                if (contents != null) files.put(path, new LoadedFile(contents, lastModified));
+            }
+        } finally {
+            filesLoaded.countDown();
+            endPhase(PHASE_FILES);
+        }
+    }
+
+    // Runs once awaitReady returned true, by then the index is fully built including launch classes
+    private void prefetchIcons(int iconSize) {
+        List<String> launchable = new ArrayList<>();
+        for (PackageIndex.Entry entry : nativeUtils.getPackageIndex().getAll()) {
+            if (entry.getLaunchClassName() != null) launchable.add(entry.packageName);
+        }
+        nativeUtils.getIconLoader().prefetch(launchable, iconSize, () -> endPhase(PHASE_ICONS));
+    }
+
+    private void endPhase(String phase) {
+        if (phaseDurations.containsKey(phase)) return;
+        phaseDurations.put(phase, SystemClock.elapsedRealtime() - startTime);
+        if (isComplete()) Log.i(TAG, "Startup complete: " + getTimingsJson());
+    }
+
+    /**
+     * Buffers the messenger callbacks until the actual listener is attached. Only the latest
+     * state message of each type is kept, other messages (e.g. commands) are kept in order.
+     */
+    private class StartupListener implements AdminAppMessengerManager.AdminAppMessengerListener {
+        private AdminAppMessengerManager.AdminAppMessengerListener target;
+        private boolean bound;
+        private final Map<String, BufferedMessage> buffered = new LinkedHashMap<>();
+        private int nextMessageKey;
+
+        synchronized void attach(AdminAppMessengerManager.AdminAppMessengerListener _target) {
+            target = _target;
+            if (bound) target.onBindStatusToAdminAppChanged(true);
+            for (BufferedMessage message : buffered.values()) {
+                target.onMessageFromAdminApp(message.what, message.json);
+            }
+            buffered.clear();
+        }
+
+        @Override
+        public synchronized void onBindStatusToAdminAppChanged(boolean _bound) {
+            if (_bound) endPhase(PHASE_ADMIN_SERVICE);
+            bound = _bound;
+            if (target != null) target.onBindStatusToAdminAppChanged(_bound);
+        }
+
+        @Override
+        public synchronized void onMessageFromAdminApp(int what, String json) {
+            if (target != null) {
+                target.onMessageFromAdminApp(what, json);
+                return;
+            }
+            // State types replace their previous message, others get a unique key
+            String key = isState(what) ? "state:" + what : "message:" + nextMessageKey++;
+            buffered.remove(key);
+            buffered.put(key, new BufferedMessage(what, json));
+        }
+
+        private boolean isState(int what) {
+            switch (what) {
+                case AdminAppMessageTypes.WIFI_NETWORKS:
+                case AdminAppMessageTypes.WIFI_CONNECTION_STATUS:
+                case AdminAppMessageTypes.RUNTIME_SETTINGS:
+                case AdminAppMessageTypes.DEVICE_STATUS:
+                case AdminAppMessageTypes.DEVICE_DATA:
+                case AdminAppMessageTypes.CASTING_CODE:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.mightyimmersion.customlauncher;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process wide counters and histograms for the plugin's hot paths (admin app IPC, PackageManager,
+ * icons, WiFi). Disabled by default; while disabled every call returns after one volatile read,
+ * and call sites that build names check isEnabled() first.
+ *
+ * Durations are measured with start()/recordSince() and kept in microseconds. Histograms use
+ * power of two buckets, so percentiles are upper bounds accurate to a factor of two.
+ */
+public final class MXRMetrics {
+    static final String TAG = "MXRMetrics";
+
+    private static final int BUCKET_COUNT = 40;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static volatile boolean enabled;
+    // Typed as ConcurrentHashMap, Map.putIfAbsent needs API 24
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private static HandlerThread dumpThread;
+    private static Handler dumpHandler;
+
+    private MXRMetrics() {
+    }
+
+    private static class Histogram {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            // Bucket i holds values below 2^i
+            int bucket = Math.min(64 - Long.numberOfLeadingZeros(value), BUCKET_COUNT - 1);
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) { }
+        }
+
+        long percentile(double fraction) {
+            long total = count.get();
+            if (total == 0) return 0;
+            long threshold = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold) return Math.min(i == 0 ? 0 : 1L << i, max.get());
+            }
+            return max.get();
+        }
+    }
+
+    public static void setEnabled(boolean _enabled) {
+        enabled = _enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a start time for recordSince, or 0 when disabled
+     */
+    public static long start() {
+        return enabled ? SystemClock.elapsedRealtimeNanos() : 0;
+    }
+
+    /**
+     * Records the time since start() into the histogram name, in microseconds.
+     * Does nothing when disabled or when start() was called while disabled.
+     */
+    public static void recordSince(String name, long startNanos) {
+        if (!enabled || startNanos == 0) return;
+        record(name, (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000);
+    }
+
+    /**
+     * Same as recordSince, into the histogram "name.what"
+     */
+    public static void recordSince(String name, int what, long startNanos) {
+        if (!enabled || startNanos == 0) return;
+        record(name + "." + what, (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000);
+    }
+
+    public static void record(String name, long value) {
+        if (!enabled) return;
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) histogram = created;
+        }
+        histogram.record(value);
+    }
+
+    public static void count(String name) {
+        if (!enabled) return;
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) counter = created;
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Increments the counter "name.what", e.g. ipc.send.5 for GET_DEVICE_STATUS
+     */
+    public static void count(String name, int what) {
+        if (!enabled) return;
+        count(name + "." + what);
+    }
+
+    public static void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    /**
+     * All metrics as json:
+     * {"enabled":true,"uptimeMs":..,"counters":{"ipc.send.5":3},
+     *  "histograms":{"ipc.roundTripUs.5":{"count":3,"sum":..,"max":..,"p50":..,"p90":..,"p99":..}}}
+     */
+    public static String snapshot() {
+        JsonPayloadWriter writer = JsonPayloadWriter.obtain().beginObject()
+                .name("enabled").value(enabled)
+                .name("uptimeMs").value(SystemClock.elapsedRealtime());
+
+        writer.name("counters").beginObject();
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            writer.name(entry.getKey()).value(entry.getValue().get());
+        }
+        writer.endObject();
+
+        writer.name("histograms").beginObject();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            writer.name(entry.getKey()).beginObject()
+                    .name("count").value(histogram.count.get())
+                    .name("sum").value(histogram.sum.get())
+                    .name("max").value(histogram.max.get())
+                    .name("p50").value(histogram.percentile(0.5))
+                    .name("p90").value(histogram.percentile(0.9))
+                    .name("p99").value(histogram.percentile(0.99))
+                    .endObject();
+        }
+        writer.endObject();
+
+        return writer.endObject().build();
+    }
+
+    /**
+     * Writes the snapshot to a file every intervalMs, replacing the previous dump.
+     * Replaces any dump already running.
+     */
+    public static synchronized void startPeriodicDump(String path, long intervalMs) {
+        stopPeriodicDump();
+        dumpThread = new HandlerThread(TAG);
+        dumpThread.start();
+        Handler handler = new Handler(dumpThread.getLooper());
+        dumpHandler = handler;
+        File file = new File(path);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                writeSnapshot(file);
+                handler.postDelayed(this, intervalMs);
+            }
+        });
+    }
+
+    public static synchronized void stopPeriodicDump() {
+        if (dumpThread == null) return;
+        dumpHandler.removeCallbacksAndMessages(null);
+        dumpThread.quitSafely();
+        dumpThread = null;
+        dumpHandler = null;
+    }
+
+    private static void writeSnapshot(File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(snapshot().getBytes(UTF_8));
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write metrics to " + tmp + ": " + e);
+            return;
+        }
+        if (!tmp.renameTo(file)) Log.e(TAG, "Could not move metrics to " + file);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import android.util.SparseArray;
+
+/**
+ * Payload sizes per message type, counted in chars of json (about twice that in bytes on the wire).
+ * Only recorded while MXRMetrics is enabled, like the other IPC metrics.
+ */
+class MessageSizeStats {
+    private static class Entry {
+        int count;
+        long totalChars;
+        int maxChars;
+        int chunkedCount;
+    }
+
+    private final SparseArray<Entry> entries = new SparseArray<>();
+
+    void record(int what, int chars, boolean chunked) {
+        if (!MXRMetrics.isEnabled()) return;
+        synchronized (this) {
+            Entry entry = entries.get(what);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(what, entry);
+            }
+            entry.count++;
+            entry.totalChars += chars;
+            if (chars > entry.maxChars) entry.maxChars = chars;
+            if (chunked) entry.chunkedCount++;
+        }
+    }
+
+    synchronized int getMaxChars(int what) {
+        Entry entry = entries.get(what);
+        return entry != null ? entry.maxChars : 0;
+    }
+
+    /**
+     * Json object keyed by message type: {"1000":{"count":3,"totalChars":1200,"maxChars":500,"chunked":0}}
+     */
+    synchronized String toJson() {
+        JsonPayloadWriter writer = JsonPayloadWriter.obtain().beginObject();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.valueAt(i);
+            writer.name(Integer.toString(entries.keyAt(i))).beginObject()
+                    .name("count").value(entry.count)
+                    .name("totalChars").value(entry.totalChars)
+                    .name("maxChars").value(entry.maxChars)
+                    .name("chunked").value(entry.chunkedCount)
+                    .endObject();
+        }
+        return writer.endObject().build();
+    }
+}
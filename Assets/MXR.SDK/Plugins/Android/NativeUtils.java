@@ -7,16 +7,16 @@ import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
 import android.app.ActivityManager;
-import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.Canvas;
 
 import java.util.*;
-import java.io.ByteArrayOutputStream;
 import android.util.Log;
 import android.net.Uri;
-import android.os.SystemClock;
+import android.os.Handler;
+import android.os.Looper;
+import java.nio.ByteBuffer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 public class NativeUtils {
 
@@ -24,17 +24,20 @@ public class NativeUtils {
     ActivityManager mActivityManager;
 
     private final static String ADMIN_SERVICE_CLASS_NAME = "com.mightyimmersion.mightyplatform.AdminService";
-    private final static String ADMIN_APP_PACKAGE_PREFIX = "com.mightyimmersion.mightyplatform.adminapp";
 
-    // TTL-cached admin app package info to avoid repeated getInstalledPackages(0) scans during init
-    private PackageInfo cachedAdminAppPackageInfo;
-    private boolean adminAppNotFound = false;
-    private long cacheTimestampMs = 0;
-    private static final long CACHE_TTL_MS = 2000;
+    // Package lookups are served from an in-memory index that package broadcasts keep up to date
+    private final PackageIndex packageIndex;
+    private final IconLoader iconLoader;
+    private final PackageChangeReceiver packageChangeReceiver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<PackageChangeReceiver.OnPackagesChangedListener> packageChangeListeners = new ArrayList<>();
 
     public NativeUtils(Context context) {
         mContext = context;
         mActivityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        packageIndex = new PackageIndex(context);
+        iconLoader = new IconLoader(context, packageIndex);
+        packageChangeReceiver = new PackageChangeReceiver(context, this::onPackagesChanged);
     }
 
     public boolean launchIntentAction(String intentAction) {
@@ -52,7 +55,9 @@ public class NativeUtils {
 
     public boolean launchApp(String packageName) {
         try {
+            long start = MXRMetrics.start();
             Intent intent = mContext.getPackageManager().getLaunchIntentForPackage(packageName);
+            MXRMetrics.recordSince("pm.getLaunchIntentForPackageUs", start);
             if (intent == null) return false;
             mContext.startActivity(intent);
             return true;
@@ -91,51 +96,60 @@ public class NativeUtils {
         }
     }
 
+    private PackageIndex.Entry findAdminAppPackageInfo() {
+        return packageIndex.getAdminApp();
+    }
+
+    IconLoader getIconLoader() {
+        return iconLoader;
+    }
+
+    public PackageIndex getPackageIndex() {
+        return packageIndex;
+    }
+
+    public void invalidateAdminAppCache() {
+        packageIndex.refreshAdminApp();
+    }
+
     /**
-     * Scans installed packages for the admin app, caching the result for CACHE_TTL_MS.
-     * Uses the strictest filter: excludes both "preload" and "test" packages.
+     * Registers a listener for package installs, updates and removals. Bursts of broadcasts are
+     * coalesced into one batch with one PackageChange per package, see PackageChangeReceiver.
+     * Listeners are called on the main thread, after the package index has been updated.
      */
-    private PackageInfo findAdminAppPackageInfo() {
-        long now = SystemClock.elapsedRealtime();
-        if (now - cacheTimestampMs < CACHE_TTL_MS) {
-            if (adminAppNotFound) return null;
-            if (cachedAdminAppPackageInfo != null) return cachedAdminAppPackageInfo;
-        }
+    public synchronized void addOnPackagesChangedListener(PackageChangeReceiver.OnPackagesChangedListener listener) {
+        if (!packageChangeListeners.contains(listener)) packageChangeListeners.add(listener);
+    }
 
-        try {
-            PackageManager pm = mContext.getPackageManager();
-            List<PackageInfo> packages = pm.getInstalledPackages(0);
-
-            for (PackageInfo packageInfo : packages) {
-                if (packageInfo.packageName.startsWith(ADMIN_APP_PACKAGE_PREFIX)
-                        && !packageInfo.packageName.contains("preload")
-                        && !packageInfo.packageName.contains("test")) {
-                    cachedAdminAppPackageInfo = packageInfo;
-                    adminAppNotFound = false;
-                    cacheTimestampMs = SystemClock.elapsedRealtime();
-                    return cachedAdminAppPackageInfo;
-                }
-            }
+    public synchronized void removeOnPackagesChangedListener(PackageChangeReceiver.OnPackagesChangedListener listener) {
+        packageChangeListeners.remove(listener);
+    }
 
-            cachedAdminAppPackageInfo = null;
-            adminAppNotFound = true;
-            cacheTimestampMs = SystemClock.elapsedRealtime();
-            return null;
-        } catch (Exception e) {
-            Log.e("NativeUtils", e.toString());
-            cachedAdminAppPackageInfo = null;
-            adminAppNotFound = true;
-            cacheTimestampMs = SystemClock.elapsedRealtime();
-            return null;
-        }
+    private void onPackagesChanged(List<PackageChange> changes) {
+        List<String> packageNames = new ArrayList<>(changes.size());
+        for (PackageChange change : changes) packageNames.add(change.packageName);
+        packageIndex.refresh(packageNames, () -> {
+            for (PackageChange change : changes) {
+                change.setIndexEntry(packageIndex.get(change.packageName));
+                // Icons are keyed by versionCode, so only the previous version's need to go
+                iconLoader.invalidate(change.packageName);
+            }
+            mainHandler.post(() -> notifyPackagesChanged(changes));
+        });
     }
 
-    public void invalidateAdminAppCache() {
-        cacheTimestampMs = 0;
+    private void notifyPackagesChanged(List<PackageChange> changes) {
+        PackageChangeReceiver.OnPackagesChangedListener[] listeners;
+        synchronized (this) {
+            listeners = packageChangeListeners.toArray(new PackageChangeReceiver.OnPackagesChangedListener[0]);
+        }
+        for (PackageChangeReceiver.OnPackagesChangedListener listener : listeners) {
+            listener.onPackagesChanged(changes);
+        }
     }
 
     public ComponentName getAdminServiceComponentName() {
-        PackageInfo info = findAdminAppPackageInfo();
+        PackageIndex.Entry info = findAdminAppPackageInfo();
         if (info == null) return null;
         return new ComponentName(info.packageName, ADMIN_SERVICE_CLASS_NAME);
     }
@@ -145,30 +159,51 @@ public class NativeUtils {
     }
 
     public boolean isAppInstalled(String packageName) {
-        return getInstalledPackagedVersionCode(packageName) != -1;
+        return packageIndex.get(packageName) != null;
     }
 
     public long getInstalledPackagedVersionCode(String packageName) {
-        try {
-            PackageInfo pInfo = mContext.getPackageManager().getPackageInfo(packageName, 0);
-            // if (Build.VERSION.SDK_INT >= 28) {
-            //     return pInfo.getLongVersionCode();
-            // }
-            return pInfo.versionCode;
-        } catch (Exception e){
-            Log.e("NativeUtils", e.toString());
-            return -1;
-        }
+        PackageIndex.Entry entry = packageIndex.get(packageName);
+        return entry != null ? entry.versionCode : -1;
     }
 
     public String getInstalledPackagedVersionName(String packageName) {
-        try {
-            PackageInfo pInfo = mContext.getPackageManager().getPackageInfo(packageName, 0);
-            return pInfo.versionName;
-        } catch (Exception e){
-            Log.e("NativeUtils", e.toString());
-            return null;
+        PackageIndex.Entry entry = packageIndex.get(packageName);
+        return entry != null ? entry.versionName : null;
+    }
+
+    /**
+     * Returns metadata for all the given packages as a single JSON array, in the same order, so a
+     * whole library can be resolved with one JNI call. Each element has packageName, installed,
+     * versionCode (-1 if not installed), versionName and className (the launcher activity).
+     * Never waits for the package index, see PackageIndex.peek.
+     */
+    public String getAppMetadata(String[] packageNames) {
+        long start = MXRMetrics.start();
+        JSONArray result = new JSONArray();
+        if (packageNames == null) return result.toString();
+
+        PackageIndex.Entry[] entries = packageIndex.peek(packageNames);
+        for (int i = 0; i < packageNames.length; i++) {
+            String packageName = packageNames[i];
+            PackageIndex.Entry entry = entries[i];
+            try {
+                JSONObject item = new JSONObject();
+                item.put("packageName", packageName);
+                item.put("installed", entry != null);
+                item.put("versionCode", entry != null ? entry.versionCode : -1);
+                if (entry != null) {
+                    item.put("versionName", entry.versionName);
+                    item.put("className", entry.getLaunchClassName());
+                }
+                result.put(item);
+            } catch (JSONException e) {
+                Log.e("NativeUtils", e.toString());
+            }
         }
+        String json = result.toString();
+        MXRMetrics.recordSince("native.getAppMetadataUs", start);
+        return json;
     }
 
     // Note: This function only works on certain device / firmware combinations.
@@ -195,45 +230,72 @@ public class NativeUtils {
         return apps;
     }
 
-    public byte[] getIcon(String packageName){
-        try{
-            PackageInfo pInfo = mContext.getPackageManager().getPackageInfo(packageName, 0);
-            Drawable drawable = pInfo.applicationInfo.loadIcon(mContext.getPackageManager());
-            return drawableToByte(drawable);
-        }catch (PackageManager.NameNotFoundException e){
-            Log.e("NativeUtils", e.toString());
-            return null;
-        }
+    /**
+     * Returns the PNG encoded icon of an app at its intrinsic size
+     */
+    public byte[] getIcon(String packageName) {
+        return iconLoader.getIcon(packageName, 0);
     }
 
+    /**
+     * Returns the PNG encoded icon of an app, rendered at size x size pixels
+     */
+    public byte[] getIcon(String packageName, int size) {
+        return iconLoader.getIcon(packageName, size);
+    }
 
-    private Bitmap getBitmapFromDrawable(Drawable drawable) {
-        Bitmap bmp = Bitmap.createBitmap(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bmp);
-        drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-        drawable.draw(canvas);
-        return bmp;
+    /**
+     * Loads the PNG encoded icon of an app off the calling thread and delivers it to the listener
+     * on the main thread. Repeated requests are served from memory.
+     */
+    public void getIconAsync(String packageName, int size, IconLoader.OnIconLoadedListener listener) {
+        iconLoader.getIconAsync(packageName, size, listener);
     }
 
-    private byte[] drawableToByte(Drawable d)
-    {
-        Bitmap bitmap = getBitmapFromDrawable(d);
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
-        return stream.toByteArray();
+    /**
+     * Returns the path of a PNG file holding the icon of an app, rendered at size x size pixels.
+     * Files are cached on disk per versionCode, so they survive restarts and reboots.
+     */
+    public String getIconPath(String packageName, int size) {
+        return iconLoader.getIconPath(packageName, size);
+    }
+
+    public void getIconPathAsync(String packageName, int size, IconLoader.OnIconFileReadyListener listener) {
+        iconLoader.getIconPathAsync(packageName, size, listener);
+    }
+
+    /**
+     * Writes the raw RGBA pixels of an app icon, rendered at size x size, into a caller provided
+     * buffer of at least size * size * 4 bytes. No PNG encoding is involved.
+     */
+    public boolean copyIconPixels(String packageName, int size, ByteBuffer dst, boolean flipVertically) {
+        return iconLoader.copyIconPixels(packageName, size, dst, flipVertically);
+    }
+
+    /**
+     * Same as copyIconPixels, into a new array of size * size * 4 bytes. Returns null on failure.
+     * This is the Unity entry point: the array crosses JNI once, but no PNG is encoded or decoded.
+     */
+    public byte[] getIconPixels(String packageName, int size, boolean flipVertically) {
+        if (size <= 0) return null;
+        byte[] pixels = new byte[size * size * 4];
+        return iconLoader.copyIconPixels(packageName, size, ByteBuffer.wrap(pixels), flipVertically) ? pixels : null;
+    }
+
+    public void copyIconPixelsAsync(String packageName, int size, ByteBuffer dst, boolean flipVertically,
+                                    IconLoader.OnIconPixelsCopiedListener listener) {
+        iconLoader.copyIconPixelsAsync(packageName, size, dst, flipVertically, listener);
     }
 
     private ArrayList<PInfo> getInstalledApps() {
         ArrayList<PInfo> res = new ArrayList<PInfo>();
-        List<PackageInfo> packs = mContext.getPackageManager().getInstalledPackages(0);
-        for(int i=0;i<packs.size();i++) {
-            PackageInfo p = packs.get(i);
-            if (p.versionName == null) {
+        for (PackageIndex.Entry entry : packageIndex.getAll()) {
+            if (entry.versionName == null) {
                 continue ;
             }
             PInfo newInfo = new PInfo();
-            newInfo.appName = p.applicationInfo.loadLabel(mContext.getPackageManager()).toString();
-            newInfo.packageName = p.packageName;
+            newInfo.appName = packageIndex.getLabel(entry);
+            newInfo.packageName = entry.packageName;
             res.add(newInfo);
         }
         return res;
@@ -251,20 +313,34 @@ public class NativeUtils {
     }
 
     public String getInstalledAdminAppPackageName() {
-        PackageInfo info = findAdminAppPackageInfo();
+        PackageIndex.Entry info = findAdminAppPackageInfo();
         return info != null ? info.packageName : null;
     }
 
     public int getInstalledAdminAppVersionCode() {
-        PackageInfo info = findAdminAppPackageInfo();
+        PackageIndex.Entry info = findAdminAppPackageInfo();
         return info != null ? info.versionCode : -1;
     }
 
     public String getInstalledAdminAppVersionName() {
-        PackageInfo info = findAdminAppPackageInfo();
+        PackageIndex.Entry info = findAdminAppPackageInfo();
         return info != null ? info.versionName : null;
     }
 
+    /**
+     * Enables or disables MXRMetrics. Metrics cost nothing while disabled.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        MXRMetrics.setEnabled(enabled);
+    }
+
+    /**
+     * All plugin metrics as json, see MXRMetrics.snapshot
+     */
+    public String getMetricsSnapshot() {
+        return MXRMetrics.snapshot();
+    }
+
     public String getSystemProperty(String key) {
         String result = "";
         try {
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Bounded queue of messages sent while not bound to the admin app, replayed once bound.
+ * Each message type follows a policy:
+ * - HOME_SCREEN_STATE: only the latest state is kept
+ * - Requests with a reply (GET_*): queued once, later duplicates are dropped
+ * - LOG_ANALYTICS_EVENT(S): capped separately, the oldest event is dropped and counted on overflow
+ * - KILL_APP, RESTART_APP, REBOOT, POWER_OFF: like other commands, but dropped and counted once
+ *   queued for longer than DESTRUCTIVE_TTL_MS, so they never run long after they were issued
+ * - Everything else (commands): delivered in order, rejected once the queue is full
+ */
+class OutboundMessageQueue {
+    static class Entry {
+        final int what;
+        final String json;
+        final int requestId;
+        final long queuedAt;
+
+        Entry(int _what, String _json, int _requestId, long _queuedAt) {
+            what = _what;
+            json = _json;
+            requestId = _requestId;
+            queuedAt = _queuedAt;
+        }
+    }
+
+    private static final int MAX_SIZE = 64;
+    private static final int MAX_ANALYTICS_EVENTS = 256;
+    static final long DESTRUCTIVE_TTL_MS = 30_000;
+
+    private final Clock clock;
+    private final LinkedList<Entry> entries = new LinkedList<>();
+    private final LinkedList<Entry> analyticsEvents = new LinkedList<>();
+    private int droppedAnalyticsEvents;
+    private int rejectedMessages;
+    private int expiredMessages;
+
+    OutboundMessageQueue(Clock _clock) {
+        clock = _clock;
+    }
+
+    /**
+     * Returns whether the message was queued, or is already covered by a queued message.
+     */
+    synchronized boolean offer(int what, String json, int requestId) {
+        Entry entry = new Entry(what, json, requestId, clock.elapsedRealtime());
+
+        if (isAnalytics(what)) {
+            if (analyticsEvents.size() >= MAX_ANALYTICS_EVENTS) {
+                analyticsEvents.removeFirst();
+                droppedAnalyticsEvents++;
+            }
+            analyticsEvents.addLast(entry);
+            return true;
+        }
+
+        if (what == AdminAppMessageTypes.HOME_SCREEN_STATE) {
+            removeAll(what);
+        } else if (AdminAppMessageTypes.replyTypeFor(what) != -1 && contains(what)) {
+            return true;
+        }
+
+        if (entries.size() >= MAX_SIZE) {
+            rejectedMessages++;
+            return false;
+        }
+        entries.addLast(entry);
+        return true;
+    }
+
+    /**
+     * Removes and returns all queued messages, commands first and analytics events last.
+     * Expired destructive commands are dropped.
+     */
+    synchronized List<Entry> drain() {
+        List<Entry> drained = new ArrayList<>(entries.size() + analyticsEvents.size());
+        long now = clock.elapsedRealtime();
+        for (Entry entry : entries) {
+            if (isDestructive(entry.what) && now - entry.queuedAt > DESTRUCTIVE_TTL_MS) {
+                expiredMessages++;
+                continue;
+            }
+            drained.add(entry);
+        }
+        drained.addAll(analyticsEvents);
+        entries.clear();
+        analyticsEvents.clear();
+        return drained;
+    }
+
+    /**
+     * Puts messages that could not be delivered back at the front of the queue.
+     */
+    synchronized void requeue(List<Entry> undelivered) {
+        for (int i = undelivered.size() - 1; i >= 0; i--) {
+            Entry entry = undelivered.get(i);
+            if (isAnalytics(entry.what)) {
+                analyticsEvents.addFirst(entry);
+            } else {
+                entries.addFirst(entry);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size() + analyticsEvents.size();
+    }
+
+    synchronized int getDroppedAnalyticsEvents() {
+        return droppedAnalyticsEvents;
+    }
+
+    synchronized int getRejectedMessages() {
+        return rejectedMessages;
+    }
+
+    synchronized int getExpiredMessages() {
+        return expiredMessages;
+    }
+
+    private static boolean isDestructive(int what) {
+        switch (what) {
+            case AdminAppMessageTypes.KILL_APP:
+            case AdminAppMessageTypes.RESTART_APP:
+            case AdminAppMessageTypes.REBOOT:
+            case AdminAppMessageTypes.POWER_OFF:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isAnalytics(int what) {
+        return what == AdminAppMessageTypes.LOG_ANALYTICS_EVENT || what == AdminAppMessageTypes.LOG_ANALYTICS_EVENTS;
+    }
+
+    private boolean contains(int what) {
+        for (Entry entry : entries) {
+            if (entry.what == what) return true;
+        }
+        return false;
+    }
+
+    private void removeAll(int what) {
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().what == what) iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.mightyimmersion.customlauncher;
+
+import android.content.Intent;
+
+import java.util.List;
+
+/**
+ * The coalesced change of one package within a batch of package broadcasts, see PackageChangeReceiver.
+ * An update arrives as REMOVED, ADDED and REPLACED broadcasts with EXTRA_REPLACING set, which
+ * coalesce into a single ACTION_REPLACED change.
+ */
+public class PackageChange {
+    public static final String ACTION_ADDED = "added";
+    public static final String ACTION_REMOVED = "removed";
+    public static final String ACTION_REPLACED = "replaced";
+    public static final String ACTION_CHANGED = "changed";
+
+    public final String packageName;
+
+    private boolean sawAdded;
+    private boolean sawRemoved;
+    private boolean sawReplaced;
+    // Removed without being replaced, and not added again since
+    private boolean uninstalled;
+    private boolean replacing;
+    private String action = ACTION_CHANGED;
+
+    // Filled in from the package index once it has been refreshed
+    volatile boolean installed;
+    volatile int versionCode = -1;
+    volatile String versionName;
+
+    PackageChange(String _packageName) {
+        packageName = _packageName;
+    }
+
+    /**
+     * Merges another broadcast for this package into the change
+     */
+    void onBroadcast(String intentAction, boolean _replacing) {
+        replacing |= _replacing;
+        if (Intent.ACTION_PACKAGE_ADDED.equals(intentAction)) {
+            sawAdded = true;
+            uninstalled = false;
+        } else if (Intent.ACTION_PACKAGE_REMOVED.equals(intentAction)) {
+            sawRemoved = true;
+            uninstalled = !_replacing;
+        } else if (Intent.ACTION_PACKAGE_REPLACED.equals(intentAction)) {
+            sawReplaced = true;
+        }
+
+        if (uninstalled) {
+            action = ACTION_REMOVED;
+        } else if (sawReplaced || replacing || (sawRemoved && sawAdded)) {
+            action = ACTION_REPLACED;
+        } else if (sawAdded) {
+            action = ACTION_ADDED;
+        } else {
+            action = ACTION_CHANGED;
+        }
+    }
+
+    void setIndexEntry(PackageIndex.Entry entry) {
+        installed = entry != null;
+        versionCode = entry != null ? entry.versionCode : -1;
+        versionName = entry != null ? entry.versionName : null;
+    }
+
+    /**
+     * One of the ACTION_ constants
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Whether any of the broadcasts was part of an update (EXTRA_REPLACING)
+     */
+    public boolean isReplacing() {
+        return replacing;
+    }
+
+    /**
+     * Whether the package was installed when the batch was delivered
+     */
+    public boolean isInstalled() {
+        return installed;
+    }
+
+    public int getVersionCode() {
+        return versionCode;
+    }
+
+    public String getVersionName() {
+        return versionName;
+    }
+
+    @Override
+    public String toString() {
+        return packageName + " " + action + (replacing ? " (replacing)" : "");
+    }
+
+    /**
+     * The changes as a json array of
+     * {"packageName":..,"action":"replaced","replacing":true,"installed":true,"versionCode":..,"versionName":..}
+     */
+    public static String toJson(List<PackageChange> changes) {
+        JsonPayloadWriter writer = JsonPayloadWriter.obtain().beginArray();
+        for (PackageChange change : changes) {
+            writer.beginObject()
+                    .name("packageName").value(change.packageName)
+                    .name("action").value(change.action)
+                    .name("replacing").value(change.replacing)
+                    .name("installed").value(change.installed)
+                    .name("versionCode").value(change.versionCode);
+            if (change.versionName != null) writer.name("versionName").value(change.versionName);
+            writer.endObject();
+        }
+        return writer.endArray().build();
+    }
+}
@@ -3,19 +3,54 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.BroadcastReceiver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Collects package broadcasts and delivers them in batches on the main thread. A batch is delivered
+ * once no broadcast arrived for DEBOUNCE_MS, or MAX_DELAY_MS after its first broadcast during a long
+ * burst such as a bulk deployment. A batch holds one PackageChange per package, in the order the
+ * packages first changed.
+ */
 public class PackageChangeReceiver extends BroadcastReceiver {
 
+    /**
+     * Called once per batch, without the changes. Kept for listeners written before batching,
+     * new code should use OnPackagesChangedListener.
+     */
     public interface OnPackageChangeListener {
         void onPackageChange();
     }
 
+    public interface OnPackagesChangedListener {
+        void onPackagesChanged(List<PackageChange> changes);
+    }
+
+    static final long DEBOUNCE_MS = 500;
+    static final long MAX_DELAY_MS = 2_000;
+
     private Context context;
-    private OnPackageChangeListener onPackageChangeListener;
+    private OnPackagesChangedListener onPackagesChangedListener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    // Main thread only
+    private final LinkedHashMap<String, PackageChange> pending = new LinkedHashMap<>();
+    private long firstPendingTime;
 
     public PackageChangeReceiver(Context _context, OnPackageChangeListener _onPackageChangeListener) {
+        this(_context, changes -> _onPackageChangeListener.onPackageChange());
+    }
+
+    public PackageChangeReceiver(Context _context, OnPackagesChangedListener _onPackagesChangedListener) {
         context = _context;
-        onPackageChangeListener = _onPackageChangeListener;
+        onPackagesChangedListener = _onPackagesChangedListener;
         IntentFilter filter = new IntentFilter();
         filter.addDataScheme("package");
         filter.addAction(Intent.ACTION_PACKAGE_ADDED);
@@ -28,10 +63,34 @@ public class PackageChangeReceiver extends BroadcastReceiver {
 
     public void onDestroy(){
         context.unregisterReceiver(this);
+        handler.removeCallbacks(flushRunnable);
     }
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        onPackageChangeListener.onPackageChange();
+        Uri data = intent.getData();
+        String packageName = data != null ? data.getSchemeSpecificPart() : null;
+        if (packageName == null) return;
+        MXRMetrics.count("pm.packageBroadcast");
+
+        long now = SystemClock.uptimeMillis();
+        if (pending.isEmpty()) firstPendingTime = now;
+        PackageChange change = pending.get(packageName);
+        if (change == null) {
+            change = new PackageChange(packageName);
+            pending.put(packageName, change);
+        }
+        change.onBroadcast(intent.getAction(), intent.getBooleanExtra(Intent.EXTRA_REPLACING, false));
+
+        handler.removeCallbacks(flushRunnable);
+        handler.postAtTime(flushRunnable, Math.min(now + DEBOUNCE_MS, firstPendingTime + MAX_DELAY_MS));
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) return;
+        List<PackageChange> changes = Collections.unmodifiableList(new ArrayList<>(pending.values()));
+        pending.clear();
+        MXRMetrics.count("pm.packageChangeBatch");
+        onPackagesChangedListener.onPackagesChanged(changes);
     }
 }
@@ -0,0 +1,393 @@
+package com.mightyimmersion.customlauncher;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of installed packages keyed by package name.
+ * The index is built once on a background thread and then kept up to date one package at a time
+ * from package broadcasts, so lookups never go through PackageManager once it is ready. Until then,
+ * lookups read PackageManager directly instead of waiting for the index, so they never block on the
+ * scan and never report an installed package as missing.
+ * Packages come from a Source, PackageManager outside of benchmarks (see NativeUtilsBenchmark).
+ */
+public class PackageIndex {
+    static final String TAG = "PackageIndex";
+
+    private final static String ADMIN_APP_PACKAGE_PREFIX = "com.mightyimmersion.mightyplatform.adminapp";
+
+    public static class Entry {
+        public final String packageName;
+        public final int versionCode;
+        public final String versionName;
+        public final boolean isAdminApp;
+
+        // Set before the index becomes ready
+        volatile String launchClassName;
+        // Filled in after the index becomes ready, as loading labels is the slowest part of the scan
+        volatile String label;
+
+        Entry(PackageInfo packageInfo) {
+            packageName = packageInfo.packageName;
+            versionCode = packageInfo.versionCode;
+            versionName = packageInfo.versionName;
+            isAdminApp = isAdminAppPackage(packageInfo.packageName);
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getLaunchClassName() {
+            return launchClassName;
+        }
+    }
+
+    /**
+     * Where packages are read from. Methods are called from the index thread and from lookups
+     * while the index is not ready.
+     */
+    interface Source {
+        List<PackageInfo> getInstalledPackages();
+
+        PackageInfo getPackageInfo(String packageName) throws PackageManager.NameNotFoundException;
+
+        /**
+         * Launcher activity class names by package name, of one package or of all when packageName is null
+         */
+        Map<String, String> queryLaunchClasses(String packageName);
+
+        String loadLabel(PackageInfo packageInfo);
+    }
+
+    static class PackageManagerSource implements Source {
+        private final PackageManager packageManager;
+
+        PackageManagerSource(PackageManager _packageManager) {
+            packageManager = _packageManager;
+        }
+
+        @Override
+        public List<PackageInfo> getInstalledPackages() {
+            return packageManager.getInstalledPackages(0);
+        }
+
+        @Override
+        public PackageInfo getPackageInfo(String packageName) throws PackageManager.NameNotFoundException {
+            return packageManager.getPackageInfo(packageName, 0);
+        }
+
+        @Override
+        public Map<String, String> queryLaunchClasses(String packageName) {
+            Intent intent = new Intent(Intent.ACTION_MAIN);
+            intent.addCategory(Intent.CATEGORY_LAUNCHER);
+            if (packageName != null) intent.setPackage(packageName);
+            Map<String, String> result = new HashMap<>();
+            for (ResolveInfo info : packageManager.queryIntentActivities(intent, 0)) {
+                if (!result.containsKey(info.activityInfo.packageName)) {
+                    result.put(info.activityInfo.packageName, info.activityInfo.name);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String loadLabel(PackageInfo packageInfo) {
+            return packageInfo.applicationInfo.loadLabel(packageManager).toString();
+        }
+    }
+
+    private final Source source;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, TAG));
+    private volatile Entry adminApp;
+
+    public PackageIndex(Context context) {
+        this(new PackageManagerSource(context.getPackageManager()));
+    }
+
+    PackageIndex(Source _source) {
+        source = _source;
+        executor.execute(this::build);
+    }
+
+    /**
+     * Uses the strictest filter: excludes both "preload" and "test" packages.
+     */
+    static boolean isAdminAppPackage(String packageName) {
+        return packageName.startsWith(ADMIN_APP_PACKAGE_PREFIX)
+                && !packageName.contains("preload")
+                && !packageName.contains("test");
+    }
+
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    public Entry get(String packageName) {
+        if (packageName == null) return null;
+        if (isReady()) return entries.get(packageName);
+
+        MXRMetrics.count("pm.indexNotReady");
+        return readEntry(packageName, queryLaunchClasses(packageName));
+    }
+
+    /**
+     * Looks up several packages without waiting for the index. While the index is still being
+     * built, they are read from PackageManager on the calling thread instead, with a single
+     * launcher activity query. Entries are null for packages that are not installed.
+     */
+    public Entry[] peek(String[] packageNames) {
+        Entry[] result = new Entry[packageNames.length];
+        if (isReady()) {
+            for (int i = 0; i < packageNames.length; i++) {
+                if (packageNames[i] != null) result[i] = entries.get(packageNames[i]);
+            }
+            return result;
+        }
+
+        MXRMetrics.count("pm.indexNotReady");
+        Map<String, String> launchClasses = queryLaunchClasses(null);
+        for (int i = 0; i < packageNames.length; i++) {
+            if (packageNames[i] != null) result[i] = readEntry(packageNames[i], launchClasses);
+        }
+        return result;
+    }
+
+    /**
+     * The admin app, or null if it is not installed. Scans PackageManager while the index is not ready.
+     */
+    public Entry getAdminApp() {
+        if (isReady()) return adminApp;
+
+        MXRMetrics.count("pm.indexNotReady");
+        for (PackageInfo packageInfo : getInstalledPackages()) {
+            if (!isAdminAppPackage(packageInfo.packageName)) continue;
+            Entry entry = new Entry(packageInfo);
+            entry.launchClassName = queryLaunchClasses(entry.packageName).get(entry.packageName);
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * All installed packages. Scans PackageManager while the index is not ready.
+     */
+    public Collection<Entry> getAll() {
+        if (isReady()) return entries.values();
+
+        MXRMetrics.count("pm.indexNotReady");
+        Map<String, String> launchClasses = queryLaunchClasses(null);
+        List<Entry> all = new ArrayList<>();
+        for (PackageInfo packageInfo : getInstalledPackages()) {
+            Entry entry = new Entry(packageInfo);
+            entry.launchClassName = launchClasses.get(entry.packageName);
+            all.add(entry);
+        }
+        return all;
+    }
+
+    /**
+     * Returns the label of an entry, loading it on the calling thread if the background pass
+     * has not reached it yet.
+     */
+    public String getLabel(Entry entry) {
+        String label = entry.label;
+        if (label == null) {
+            label = loadLabel(entry.packageName);
+            entry.label = label;
+        }
+        return label;
+    }
+
+    /**
+     * Re-reads a single package from PackageManager, removing it if it is no longer installed.
+     * onDone runs on the index thread once the entry has been updated and may be null.
+     */
+    public void refresh(String packageName, Runnable onDone) {
+        executor.execute(() -> {
+            if (packageName != null) refreshEntry(packageName);
+            if (onDone != null) onDone.run();
+        });
+    }
+
+    /**
+     * Re-reads several packages in one pass on the index thread, see refresh(String, Runnable)
+     */
+    public void refresh(Collection<String> packageNames, Runnable onDone) {
+        executor.execute(() -> {
+            for (String packageName : packageNames) {
+                if (packageName != null) refreshEntry(packageName);
+            }
+            if (onDone != null) onDone.run();
+        });
+    }
+
+    /**
+     * Re-reads the admin app entry, e.g. after its service binding died.
+     */
+    public void refreshAdminApp() {
+        Entry current = adminApp;
+        if (current != null) refresh(current.packageName, null);
+    }
+
+    /**
+     * Blocks until the index is built or timeoutMs elapses. Returns whether the index is ready.
+     */
+    public boolean awaitReady(long timeoutMs) {
+        try {
+            return ready.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops the index thread once queued refreshes are done. Only for indexes that are thrown away,
+     * like the benchmark's.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void build() {
+        List<PackageInfo> packages = new ArrayList<>();
+        try {
+            long start = MXRMetrics.start();
+            packages = source.getInstalledPackages();
+            MXRMetrics.recordSince("pm.getInstalledPackagesUs", start);
+            // Launch components in one query, so readers never see an entry without its launch class
+            Map<String, String> launchClasses = queryLaunchClasses(null);
+            for (PackageInfo packageInfo : packages) {
+                Entry entry = new Entry(packageInfo);
+                entry.launchClassName = launchClasses.get(entry.packageName);
+                entries.put(entry.packageName, entry);
+                if (entry.isAdminApp && adminApp == null) adminApp = entry;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, e.toString());
+        } finally {
+            ready.countDown();
+        }
+
+        // Second pass: labels, which getLabel loads on demand until then
+        for (PackageInfo packageInfo : packages) {
+            Entry entry = entries.get(packageInfo.packageName);
+            if (entry != null && entry.label == null) entry.label = loadLabel(packageInfo);
+        }
+        Log.v(TAG, "Indexed " + entries.size() + " packages");
+    }
+
+    // Null if not installed
+    private Entry readEntry(String packageName, Map<String, String> launchClasses) {
+        try {
+            long start = MXRMetrics.start();
+            Entry entry = new Entry(source.getPackageInfo(packageName));
+            MXRMetrics.recordSince("pm.getPackageInfoUs", start);
+            entry.launchClassName = launchClasses.get(packageName);
+            return entry;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, e.toString());
+            return null;
+        }
+    }
+
+    private List<PackageInfo> getInstalledPackages() {
+        try {
+            long start = MXRMetrics.start();
+            List<PackageInfo> packages = source.getInstalledPackages();
+            MXRMetrics.recordSince("pm.getInstalledPackagesUs", start);
+            return packages;
+        } catch (Exception e) {
+            Log.e(TAG, e.toString());
+            return new ArrayList<>();
+        }
+    }
+
+    private void refreshEntry(String packageName) {
+        Entry entry = null;
+        try {
+            long start = MXRMetrics.start();
+            PackageInfo packageInfo = source.getPackageInfo(packageName);
+            MXRMetrics.recordSince("pm.getPackageInfoUs", start);
+            entry = new Entry(packageInfo);
+            entry.launchClassName = queryLaunchClasses(packageName).get(packageName);
+            entry.label = loadLabel(packageInfo);
+        } catch (PackageManager.NameNotFoundException e) {
+            // Removed
+        } catch (Exception e) {
+            Log.e(TAG, e.toString());
+            return;
+        }
+
+        if (entry != null) {
+            entries.put(packageName, entry);
+        } else {
+            entries.remove(packageName);
+        }
+
+        Entry currentAdminApp = adminApp;
+        if (entry != null && entry.isAdminApp && (currentAdminApp == null || currentAdminApp.packageName.equals(packageName))) {
+            adminApp = entry;
+        } else if (entry == null && currentAdminApp != null && currentAdminApp.packageName.equals(packageName)) {
+            adminApp = findAdminApp();
+        }
+    }
+
+    private Entry findAdminApp() {
+        for (Entry entry : entries.values()) {
+            if (entry.isAdminApp) return entry;
+        }
+        return null;
+    }
+
+    private Map<String, String> queryLaunchClasses(String packageName) {
+        try {
+            long start = MXRMetrics.start();
+            Map<String, String> result = source.queryLaunchClasses(packageName);
+            MXRMetrics.recordSince("pm.queryIntentActivitiesUs", start);
+            return result;
+        } catch (Exception e) {
+            Log.e(TAG, e.toString());
+            return new HashMap<>();
+        }
+    }
+
+    private String loadLabel(String packageName) {
+        try {
+            return loadLabel(source.getPackageInfo(packageName));
+        } catch (Exception e) {
+            return packageName;
+        }
+    }
+
+    private String loadLabel(PackageInfo packageInfo) {
+        try {
+            long start = MXRMetrics.start();
+            String label = source.loadLabel(packageInfo);
+            MXRMetrics.recordSince("pm.loadLabelUs", start);
+            return label;
+        } catch (Exception e) {
+            return packageInfo.packageName;
+        }
+    }
+}
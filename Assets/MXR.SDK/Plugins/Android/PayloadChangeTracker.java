@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the last payload of each tracked message type so a payload identical to the previous
+ * one can be dropped before it crosses JNI. Payloads are compared by hash first, and by content only
+ * when the hashes match.
+ */
+class PayloadChangeTracker {
+    private static class Payload {
+        final int hash;
+        final String json;
+
+        Payload(int _hash, String _json) {
+            hash = _hash;
+            json = _json;
+        }
+    }
+
+    // Indexed like trackedTypes
+    private final int[] trackedTypes;
+    private final Payload[] lastPayloads;
+    private final int[] unchangedCounts;
+
+    PayloadChangeTracker(int... _trackedTypes) {
+        trackedTypes = _trackedTypes;
+        lastPayloads = new Payload[_trackedTypes.length];
+        unchangedCounts = new int[_trackedTypes.length];
+    }
+
+    boolean isTracked(int what) {
+        return indexOf(what) != -1;
+    }
+
+    /**
+     * Returns false if the payload equals the last one seen for its type, true otherwise.
+     * Untracked types and null payloads always count as changed.
+     */
+    synchronized boolean onPayload(int what, String json) {
+        int index = indexOf(what);
+        if (json == null || index == -1) return true;
+
+        int hash = json.hashCode();
+        Payload last = lastPayloads[index];
+        if (last != null && last.hash == hash && last.json.equals(json)) {
+            unchangedCounts[index]++;
+            return false;
+        }
+        lastPayloads[index] = new Payload(hash, json);
+        return true;
+    }
+
+    synchronized int getUnchangedCount(int what) {
+        int index = indexOf(what);
+        return index != -1 ? unchangedCounts[index] : 0;
+    }
+
+    /**
+     * Forgets the last payloads so the next one of every type is delivered
+     */
+    synchronized void reset() {
+        Arrays.fill(lastPayloads, null);
+    }
+
+    /**
+     * Forgets the last payload of one type so the next one is delivered
+     */
+    synchronized void reset(int what) {
+        int index = indexOf(what);
+        if (index != -1) lastPayloads[index] = null;
+    }
+
+    private int indexOf(int what) {
+        for (int i = 0; i < trackedTypes.length; i++) {
+            if (trackedTypes[i] == what) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2021 Mighty Immersion, Inc. All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * Proprietary and confidential.
+ */
+
+package com.mightyimmersion.customlauncher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits large json payloads over several messages of the same type, and reassembles them.
+ * Binder transactions are limited to about 1MB shared by the whole process, so payloads above
+ * THRESHOLD_CHARS are sent as chunks of at most CHUNK_CHARS, each carrying the transfer id,
+ * its index and the chunk count. Only used when both sides advertise CAPABILITY_CHUNKED_TRANSFER.
+ * Reading chunks from a Bundle is left to AdminAppPayloadCodec.
+ */
+class PayloadChunking {
+    // This should be in sync with MightyLibrary
+    static final String KEY_CHUNK_ID = "chunkId";
+    static final String KEY_CHUNK_INDEX = "chunkIndex";
+    static final String KEY_CHUNK_COUNT = "chunkCount";
+
+    // Strings are parceled as UTF-16, so these are 256KB and 128KB on the wire
+    static final int THRESHOLD_CHARS = 128 * 1024;
+    static final int CHUNK_CHARS = 64 * 1024;
+
+    /**
+     * Splits a payload into chunks of at most chunkChars, never between the two halves of a surrogate pair
+     */
+    static List<String> split(String json, int chunkChars) {
+        List<String> chunks = new ArrayList<>(json.length() / chunkChars + 1);
+        int start = 0;
+        while (start < json.length()) {
+            int end = Math.min(start + chunkChars, json.length());
+            if (end < json.length() && Character.isHighSurrogate(json.charAt(end - 1))) end--;
+            chunks.add(json.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Collects incoming chunks until a transfer is complete. Transfers that stop receiving chunks
+     * are dropped after TRANSFER_TIMEOUT_MS. Not thread safe, used from the IPC thread only.
+     */
+    static class Assembler {
+        static final long TRANSFER_TIMEOUT_MS = 30_000;
+        static final int MAX_TRANSFERS = 8;
+
+        private static class Transfer {
+            final int what;
+            final String[] chunks;
+            int received;
+            int length;
+            long lastChunkTime;
+
+            Transfer(int _what, int chunkCount) {
+                what = _what;
+                chunks = new String[chunkCount];
+            }
+        }
+
+        private final Clock clock;
+        private final Map<Integer, Transfer> transfers = new HashMap<>();
+        private int invalidChunks;
+        private int droppedTransfers;
+
+        Assembler(Clock _clock) {
+            clock = _clock;
+        }
+
+        /**
+         * Adds chunk index of count of transfer id. Returns the whole payload when this was the last
+         * missing chunk, null otherwise.
+         */
+        String accept(int what, int id, int index, int count, String chunk) {
+            long now = clock.elapsedRealtime();
+
+            if (count <= 0 || index < 0 || index >= count) {
+                invalidChunks++;
+                return null;
+            }
+            if (chunk == null) chunk = "";
+
+            dropStaleTransfers(now);
+
+            Transfer transfer = transfers.get(id);
+            if (transfer == null || transfer.what != what || transfer.chunks.length != count) {
+                if (transfers.size() >= MAX_TRANSFERS) dropOldestTransfer();
+                transfer = new Transfer(what, count);
+                transfers.put(id, transfer);
+            }
+            transfer.lastChunkTime = now;
+
+            if (transfer.chunks[index] == null) {
+                transfer.chunks[index] = chunk;
+                transfer.received++;
+                transfer.length += chunk.length();
+            }
+            if (transfer.received < count) return null;
+
+            transfers.remove(id);
+            StringBuilder json = new StringBuilder(transfer.length);
+            for (String part : transfer.chunks) json.append(part);
+            return json.toString();
+        }
+
+        void clear() {
+            transfers.clear();
+        }
+
+        int getPendingTransferCount() {
+            return transfers.size();
+        }
+
+        /**
+         * Chunks rejected for an index outside their chunk count
+         */
+        int getInvalidChunkCount() {
+            return invalidChunks;
+        }
+
+        /**
+         * Incomplete transfers dropped because they timed out, or to make room for a new one
+         */
+        int getDroppedTransferCount() {
+            return droppedTransfers;
+        }
+
+        private void dropStaleTransfers(long now) {
+            Iterator<Transfer> iterator = transfers.values().iterator();
+            while (iterator.hasNext()) {
+                if (now - iterator.next().lastChunkTime > TRANSFER_TIMEOUT_MS) {
+                    iterator.remove();
+                    droppedTransfers++;
+                }
+            }
+        }
+
+        private void dropOldestTransfer() {
+            Integer oldest = null;
+            long oldestTime = Long.MAX_VALUE;
+            for (Map.Entry<Integer, Transfer> entry : transfers.entrySet()) {
+                if (entry.getValue().lastChunkTime < oldestTime) {
+                    oldest = entry.getKey();
+                    oldestTime = entry.getValue().lastChunkTime;
+                }
+            }
+            if (oldest != null) {
+                transfers.remove(oldest);
+                droppedTransfers++;
+            }
+        }
+    }
+}
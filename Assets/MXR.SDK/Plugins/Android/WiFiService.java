@@ -2,89 +2,311 @@ package com.mightyimmersion.customlauncher;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
 import android.content.BroadcastReceiver;
 import android.net.wifi.ScanResult;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Wi-Fi scanning and connection. Broadcasts are handled on a dedicated WiFi thread.
+ * OnWiFiFoundListener and OnWiFiChangeListener are still called on the main thread, with every
+ * scan result broadcast and every SSID change as before.
+ *
+ * Scan results are also merged by WifiScanEngine into one network per SSID, and
+ * OnWiFiNetworksChangedListener receives only what was added, removed or changed significantly.
+ * Scans are throttled to stay within Android's scan limits, see startScan and getScanDelayMs, and
+ * periodic scanning backs off while nothing changes.
+ */
 public class WiFiService extends BroadcastReceiver {
 
+    /**
+     * Called on the main thread with the results of every scan
+     */
     public static interface OnWiFiFoundListener {
         public void onWiFiListUpdate(List<ScanResult> scanResults);
     }
 
+    /**
+     * Called on the main thread when the connected network changes
+     */
     public static interface OnWiFiChangeListener {
         public void onWiFiChange(String ssid);
     }
 
+    /**
+     * Called on the WiFi thread. The lists and the WifiNetwork objects are reused by the next scan,
+     * so copy what you need before returning.
+     */
+    public static interface OnWiFiNetworksChangedListener {
+        public void onWiFiNetworksChanged(List<WifiNetwork> added, List<WifiNetwork> removed, List<WifiNetwork> changed);
+    }
+
+    /**
+     * Called on the WiFi thread once the outcome of connectToWiFi is known. result is one of the
+     * CONNECT_RESULT_ constants, latencyMs the time since connectToWiFi was called.
+     */
+    public static interface OnWiFiConnectResultListener {
+        public void onWiFiConnectResult(String ssid, int result, long latencyMs);
+    }
+
+    public static final int CONNECT_RESULT_CONNECTED = 0;
+    public static final int CONNECT_RESULT_AUTH_FAILURE = 1;
+    public static final int CONNECT_RESULT_TIMEOUT = 2;
+    // The network could not be configured or suggested
+    public static final int CONNECT_RESULT_FAILED = 3;
+    // Superseded by another connectToWiFi call, or the service was released
+    public static final int CONNECT_RESULT_CANCELLED = 4;
+
+    static final String THREAD_NAME = "MXR-WiFi";
+
+    // What WifiInfo.getSSID reports while not connected, OnWiFiChangeListener never receives null
+    static final String UNKNOWN_SSID = "<unknown ssid>";
+
+    // Android 9+ allows foreground apps 4 scans per 2 minutes, extra scans only return cached results
+    static final long MIN_SCAN_INTERVAL_MS = Build.VERSION.SDK_INT >= 28 ? 30_000 : 10_000;
+    static final long MAX_SCAN_INTERVAL_MS = 120_000;
+
     private Context context;
     private WifiManager wifiManager;
-    private int i = 0;
+    private ConnectivityManager connectivityManager;
     private OnWiFiFoundListener onWiFiFoundListener;
     private OnWiFiChangeListener onWiFiChangeListener;
+    private volatile OnWiFiNetworksChangedListener onWiFiNetworksChangedListener;
+
+    private final HandlerThread wifiThread;
+    private final Handler wifiHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // WiFi thread only
+    private final WifiScanEngine scanEngine = new WifiScanEngine();
+    private final Runnable scanRunnable = this::requestScan;
+    // Written on the WiFi thread, read by getScanDelayMs
+    private volatile long lastScanTime = -MIN_SCAN_INTERVAL_MS;
+    private long scanIntervalMs = MIN_SCAN_INTERVAL_MS;
+    private boolean periodicScan;
+    private final ArrayList<WifiNetwork> snapshotScratch = new ArrayList<>();
 
+    private volatile WifiScanSnapshot scanSnapshot = WifiScanSnapshot.EMPTY;
+
+    // Connectivity is tracked with a NetworkCallback where available, NETWORK_STATE_CHANGED_ACTION otherwise
+    private final ConnectivityMonitor connectivityMonitor;
+    private final boolean monitoringConnectivity;
+    private String reportedSsid;
+
+    private final WifiConnector connector;
 
     public WiFiService(Context _context, OnWiFiFoundListener _onWiFiFoundListener, OnWiFiChangeListener _onWiFiChangeListener) {
         context = _context;
         wifiManager = (WifiManager) _context.getSystemService(Context.WIFI_SERVICE);
+        connectivityManager = (ConnectivityManager) _context.getSystemService(Context.CONNECTIVITY_SERVICE);
         onWiFiFoundListener = _onWiFiFoundListener;
         onWiFiChangeListener = _onWiFiChangeListener;
 
+        wifiThread = new HandlerThread(THREAD_NAME);
+        wifiThread.start();
+        wifiHandler = new Handler(wifiThread.getLooper());
+
+        connectivityMonitor = new ConnectivityMonitor(_context, wifiHandler, this::onConnectivityChanged);
+        monitoringConnectivity = connectivityMonitor.start();
+        // Report the current network, as the sticky NETWORK_STATE_CHANGED_ACTION does otherwise
+        if (monitoringConnectivity) wifiHandler.post(() -> onConnectivityChanged(connectivityMonitor));
+        connector = new WifiConnector(_context, wifiManager, wifiHandler);
+
         IntentFilter filter = new IntentFilter();
         filter.addAction(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION);
-        filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
-        context.registerReceiver(this, filter);
+        if (!monitoringConnectivity) filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
+        context.registerReceiver(this, filter, null, wifiHandler);
+    }
+
+    public void setOnWiFiNetworksChangedListener(OnWiFiNetworksChangedListener listener) {
+        onWiFiNetworksChangedListener = listener;
     }
 
+    /**
+     * Requests a scan. When the last scan was less than MIN_SCAN_INTERVAL_MS ago, the scan is
+     * deferred until then, and requests made meanwhile share it. getScanDelayMs tells how long.
+     */
     public void startScan(){
-        wifiManager.setWifiEnabled(true);
+        wifiHandler.post(scanRunnable);
+    }
+
+    /**
+     * Milliseconds until a requested scan actually starts, 0 if startScan would start one right away
+     */
+    public long getScanDelayMs() {
+        return Math.max(0, lastScanTime + MIN_SCAN_INTERVAL_MS - SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Scans every MIN_SCAN_INTERVAL_MS, backing off up to MAX_SCAN_INTERVAL_MS while scans find no changes
+     */
+    public void startPeriodicScan() {
+        wifiHandler.post(() -> {
+            periodicScan = true;
+            scanIntervalMs = MIN_SCAN_INTERVAL_MS;
+            requestScan();
+        });
+    }
+
+    public void stopPeriodicScan() {
+        wifiHandler.post(() -> {
+            periodicScan = false;
+            wifiHandler.removeCallbacks(scanRunnable);
+        });
+    }
+
+    /**
+     * Unregisters the receiver and stops the WiFi thread
+     */
+    public void release() {
+        context.unregisterReceiver(this);
+        connector.cancel();
+        wifiHandler.post(() -> {
+            connectivityMonitor.stop();
+            wifiHandler.removeCallbacksAndMessages(null);
+            wifiThread.quitSafely();
+        });
+    }
+
+    /**
+     * The networks known after the last scan, packed into primitive arrays, see WifiScanSnapshot
+     */
+    public WifiScanSnapshot getScanSnapshot() {
+        return scanSnapshot;
+    }
+
+    /**
+     * The current snapshot if its version differs from the given one, null otherwise. Lets pollers
+     * skip unchanged scans with a single call.
+     */
+    public WifiScanSnapshot getScanSnapshotIfChanged(int version) {
+        WifiScanSnapshot snapshot = scanSnapshot;
+        return snapshot.version != version ? snapshot : null;
+    }
+
+    private void requestScan() {
+        wifiHandler.removeCallbacks(scanRunnable);
+        long now = SystemClock.uptimeMillis();
+        long earliest = lastScanTime + MIN_SCAN_INTERVAL_MS;
+        if (now < earliest) {
+            MXRMetrics.count("wifi.scanDeferred");
+            wifiHandler.postAtTime(scanRunnable, earliest);
+            return;
+        }
+
+        MXRMetrics.count("wifi.startScan");
+        if (!wifiManager.isWifiEnabled()) wifiManager.setWifiEnabled(true);
+        lastScanTime = now;
         wifiManager.startScan();
+        // In case no results arrive, e.g. the scan was rejected
+        if (periodicScan) wifiHandler.postAtTime(scanRunnable, now + MAX_SCAN_INTERVAL_MS);
     }
 
+    /**
+     * Whether the default network has internet access. Reads a cached field, so it is cheap to poll.
+     */
     public boolean isConnectedToInternet(){
-        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        if (cm == null) return false;
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        if (monitoringConnectivity) return connectivityMonitor.hasInternet();
+
+        if (connectivityManager == null) return false;
+        NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
         return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
     }
 
+    /**
+     * The transport of the default network, one of the ConnectivityMonitor.TRANSPORT_ constants.
+     * TRANSPORT_NONE before API 21.
+     */
+    public int getTransport() {
+        return connectivityMonitor.getTransport();
+    }
+
+    /**
+     * The quoted SSID of the connected Wi-Fi network, or null when not on Wi-Fi. Null before API 21.
+     */
+    public String getConnectedSsid() {
+        return connectivityMonitor.getSsid();
+    }
+
+    /**
+     * Wi-Fi link speed in Mbps, or -1 when not on Wi-Fi or before API 21
+     */
+    public int getLinkSpeedMbps() {
+        return connectivityMonitor.getLinkSpeedMbps();
+    }
+
+    private void onConnectivityChanged(ConnectivityMonitor monitor) {
+        String ssid = monitor.getSsid();
+        if (onWiFiChangeListener == null || (ssid == null ? reportedSsid == null : ssid.equals(reportedSsid))) return;
+        reportedSsid = ssid;
+        String reported = ssid != null ? ssid : UNKNOWN_SSID;
+        mainHandler.post(() -> onWiFiChangeListener.onWiFiChange(reported));
+    }
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        if(intent.getAction().equals(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION) && onWiFiFoundListener != null){
-            onWiFiFoundListener.onWiFiListUpdate(wifiManager.getScanResults());
+        if(intent.getAction().equals(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)){
+            // API 23+: false when the scan failed and the results are the cached ones
+            boolean updated = intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, true);
+            if (!updated) MXRMetrics.count("wifi.scanNotUpdated");
+            onScanResults(updated);
         }else if(intent.getAction().equals(WifiManager.NETWORK_STATE_CHANGED_ACTION) && onWiFiChangeListener != null){
-            onWiFiChangeListener.onWiFiChange(wifiManager.getConnectionInfo().getSSID());
+            MXRMetrics.count("wifi.networkStateChanged");
+            String ssid = wifiManager.getConnectionInfo().getSSID();
+            mainHandler.post(() -> onWiFiChangeListener.onWiFiChange(ssid));
         }
     }
 
-    public boolean connectToWiFi(String ssid, String key, String networkType) {
-        if (wifiManager == null) return false;
+    private void onScanResults(boolean updated) {
+        long start = MXRMetrics.start();
+        List<ScanResult> scanResults = wifiManager.getScanResults();
+        MXRMetrics.recordSince("wifi.getScanResultsUs", start);
+
+        // Every broadcast, like before merging existed. getScanResults returns a new list each time.
+        if (onWiFiFoundListener != null) mainHandler.post(() -> onWiFiFoundListener.onWiFiListUpdate(scanResults));
+        // Cached results of a failed scan have nothing new to merge
+        if (!updated) return;
 
-        WifiConfiguration conf = new WifiConfiguration();
-        conf.SSID = String.format("\"%s\"", ssid);
-
-        if ("OPEN".equals(networkType)) {
-            conf.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.NONE);
-        } else if ("WEP".equals(networkType)) {
-            conf.wepKeys[0] = String.format("\"%s\"", key);
-            conf.wepTxKeyIndex = 0;
-            conf.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.NONE);
-            conf.allowedGroupCiphers.set(WifiConfiguration.GroupCipher.WEP40);
-        } else if ("WPA".equals(networkType)) {
-            conf.preSharedKey = String.format("\"%s\"", key);
+        boolean changed = scanEngine.merge(scanResults);
+        if (periodicScan) {
+            scanIntervalMs = changed ? MIN_SCAN_INTERVAL_MS : Math.min(scanIntervalMs * 2, MAX_SCAN_INTERVAL_MS);
+            wifiHandler.removeCallbacks(scanRunnable);
+            wifiHandler.postAtTime(scanRunnable, lastScanTime + scanIntervalMs);
         }
+        if (!changed) {
+            MXRMetrics.count("wifi.scanUnchanged");
+            return;
+        }
+        scanSnapshot = WifiScanSnapshot.of(scanSnapshot.version + 1, scanEngine.getNetworks(), snapshotScratch);
 
-        int netId = wifiManager.addNetwork(conf);
-        boolean success = netId != -1;
-        if (success) {
-            wifiManager.disconnect();
-            success = wifiManager.enableNetwork(netId, true);
-            wifiManager.reconnect();        
+        OnWiFiNetworksChangedListener networksListener = onWiFiNetworksChangedListener;
+        if (networksListener != null) {
+            networksListener.onWiFiNetworksChanged(scanEngine.getAdded(), scanEngine.getRemoved(), scanEngine.getChanged());
         }
+    }
+
+    public boolean connectToWiFi(String ssid, String key, String networkType) {
+        return connectToWiFi(ssid, key, networkType, null);
+    }
 
+    /**
+     * Connects to the network, reusing its existing configuration or suggestion if there is one.
+     * Returns whether the network was accepted, the listener (which may be null) then receives the
+     * outcome. See WifiConnector.
+     */
+    public boolean connectToWiFi(String ssid, String key, String networkType, OnWiFiConnectResultListener listener) {
+        if (wifiManager == null) return false;
+        long start = MXRMetrics.start();
+        boolean success = connector.connect(ssid, key, networkType, listener);
+        MXRMetrics.recordSince("wifi.connectToWiFiUs", start);
         return success;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,253 @@
+package com.mightyimmersion.customlauncher;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.net.wifi.WifiNetworkSuggestion;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Connects to Wi-Fi networks for WiFiService and reports the outcome once it is known.
+ *
+ * Apps targeting API 28 or lower (or running on it) configure networks directly. An existing
+ * configuration with the same SSID is updated and enabled instead of adding another one.
+ * Apps targeting API 29+ on Android 10+ can only suggest networks, so the previous suggestion
+ * for the SSID is replaced. The platform then connects when it decides to.
+ *
+ * The outcome comes from NETWORK_STATE_CHANGED_ACTION and SUPPLICANT_STATE_CHANGED_ACTION, which are
+ * only received while an attempt is pending. Authentication failures are not broadcast for
+ * suggestions, those attempts end as timeouts instead. Starting an attempt cancels the previous one.
+ *
+ * Without location permission the SSID of the current connection reads as "<unknown ssid>". Then the
+ * first connection broadcast after the attempt started is taken as the outcome, instead of waiting
+ * for an SSID that never matches.
+ */
+class WifiConnector extends BroadcastReceiver {
+    static final String TAG = "WifiConnector";
+
+    static final long CONNECT_TIMEOUT_MS = 20_000;
+    private static final String UNKNOWN_SSID = "<unknown ssid>";
+
+    private final Context context;
+    private final WifiManager wifiManager;
+    private final Handler handler;
+    private final boolean useSuggestions;
+    // Suggestions added by this app, by SSID
+    private final HashMap<String, WifiNetworkSuggestion> suggestions = new HashMap<>();
+
+    // The pending attempt, handler thread only
+    private String pendingSsid;
+    private long pendingStartNanos;
+    private WiFiService.OnWiFiConnectResultListener pendingListener;
+    private boolean receiverRegistered;
+    private final Runnable timeoutRunnable = () -> finish(WiFiService.CONNECT_RESULT_TIMEOUT);
+
+    WifiConnector(Context _context, WifiManager _wifiManager, Handler _handler) {
+        context = _context;
+        wifiManager = _wifiManager;
+        handler = _handler;
+        useSuggestions = Build.VERSION.SDK_INT >= 29 && context.getApplicationInfo().targetSdkVersion >= 29;
+    }
+
+    /**
+     * Configures or suggests the network on the calling thread, then waits for the outcome on the
+     * handler thread. Returns whether the network was accepted. The listener, which may be null,
+     * is called on the handler thread in any case.
+     */
+    boolean connect(String ssid, String key, String networkType, WiFiService.OnWiFiConnectResultListener listener) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        boolean accepted;
+        try {
+            accepted = useSuggestions ? suggest(ssid, key, networkType) : configure(ssid, key, networkType);
+        } catch (SecurityException e) {
+            Log.e(TAG, "Not allowed to configure " + ssid + ": " + e.getMessage());
+            accepted = false;
+        }
+
+        boolean started = accepted;
+        handler.post(() -> begin(ssid, started, startNanos, listener));
+        return accepted;
+    }
+
+    /**
+     * Ends the pending attempt as cancelled
+     */
+    void cancel() {
+        handler.post(() -> finish(WiFiService.CONNECT_RESULT_CANCELLED));
+    }
+
+    private boolean configure(String ssid, String key, String networkType) {
+        String quotedSsid = quote(ssid);
+        WifiConfiguration conf = findConfiguration(quotedSsid);
+        boolean existing = conf != null;
+        if (!existing) {
+            conf = new WifiConfiguration();
+            conf.SSID = quotedSsid;
+        }
+        applySecurity(conf, key, networkType);
+
+        int netId = existing ? wifiManager.updateNetwork(conf) : wifiManager.addNetwork(conf);
+        if (netId == -1 && existing) {
+            // Configurations created by other apps cannot be updated, connect with it as it is
+            Log.w(TAG, "Could not update the configuration of " + ssid + ", using it unchanged");
+            netId = conf.networkId;
+        }
+        if (netId == -1) return false;
+        MXRMetrics.count(existing ? "wifi.configReused" : "wifi.configAdded");
+
+        boolean enabled = wifiManager.enableNetwork(netId, true);
+        wifiManager.reconnect();
+        return enabled;
+    }
+
+    private WifiConfiguration findConfiguration(String quotedSsid) {
+        List<WifiConfiguration> configurations = wifiManager.getConfiguredNetworks();
+        if (configurations == null) return null;
+        for (WifiConfiguration configuration : configurations) {
+            if (quotedSsid.equals(configuration.SSID)) return configuration;
+        }
+        return null;
+    }
+
+    private static void applySecurity(WifiConfiguration conf, String key, String networkType) {
+        conf.allowedKeyManagement.clear();
+        conf.allowedGroupCiphers.clear();
+        if ("OPEN".equals(networkType)) {
+            conf.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.NONE);
+        } else if ("WEP".equals(networkType)) {
+            conf.wepKeys[0] = quote(key);
+            conf.wepTxKeyIndex = 0;
+            conf.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.NONE);
+            conf.allowedGroupCiphers.set(WifiConfiguration.GroupCipher.WEP40);
+        } else if ("WPA".equals(networkType)) {
+            conf.preSharedKey = quote(key);
+            conf.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.WPA_PSK);
+        }
+    }
+
+    private boolean suggest(String ssid, String key, String networkType) {
+        WifiNetworkSuggestion.Builder builder = new WifiNetworkSuggestion.Builder().setSsid(ssid);
+        if ("WPA".equals(networkType)) {
+            builder.setWpa2Passphrase(key);
+        } else if ("WEP".equals(networkType)) {
+            Log.e(TAG, "WEP networks cannot be suggested: " + ssid);
+            return false;
+        }
+        WifiNetworkSuggestion suggestion = builder.build();
+
+        synchronized (suggestions) {
+            // Replace the previous suggestion, its passphrase may be outdated
+            WifiNetworkSuggestion previous = suggestions.remove(ssid);
+            if (previous != null) wifiManager.removeNetworkSuggestions(Collections.singletonList(previous));
+
+            int status = wifiManager.addNetworkSuggestions(Collections.singletonList(suggestion));
+            if (status == WifiManager.STATUS_NETWORK_SUGGESTIONS_ERROR_ADD_DUPLICATE) {
+                wifiManager.removeNetworkSuggestions(Collections.singletonList(suggestion));
+                status = wifiManager.addNetworkSuggestions(Collections.singletonList(suggestion));
+            }
+            if (status != WifiManager.STATUS_NETWORK_SUGGESTIONS_SUCCESS) {
+                Log.e(TAG, "Could not suggest " + ssid + ", status " + status);
+                return false;
+            }
+            suggestions.put(ssid, suggestion);
+        }
+        MXRMetrics.count("wifi.suggestionAdded");
+        return true;
+    }
+
+    private void begin(String ssid, boolean accepted, long startNanos, WiFiService.OnWiFiConnectResultListener listener) {
+        finish(WiFiService.CONNECT_RESULT_CANCELLED);
+        pendingSsid = quote(ssid);
+        pendingStartNanos = startNanos;
+        pendingListener = listener;
+
+        if (!accepted) {
+            finish(WiFiService.CONNECT_RESULT_FAILED);
+            return;
+        }
+        if (isConnectedToPendingNetwork()) {
+            finish(WiFiService.CONNECT_RESULT_CONNECTED);
+            return;
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
+        filter.addAction(WifiManager.SUPPLICANT_STATE_CHANGED_ACTION);
+        context.registerReceiver(this, filter, null, handler);
+        receiverRegistered = true;
+        handler.postDelayed(timeoutRunnable, CONNECT_TIMEOUT_MS);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (pendingSsid == null) return;
+
+        if (WifiManager.NETWORK_STATE_CHANGED_ACTION.equals(intent.getAction())) {
+            NetworkInfo networkInfo = intent.getParcelableExtra(WifiManager.EXTRA_NETWORK_INFO);
+            if (networkInfo == null || !networkInfo.isConnected()) return;
+            if (isConnectedToPendingNetwork()) {
+                finish(WiFiService.CONNECT_RESULT_CONNECTED);
+            } else if (getConnectedSsid() == null && !isInitialStickyBroadcast()) {
+                // The SSID is hidden, but this connection came up after the attempt started
+                MXRMetrics.count("wifi.connectUnverified");
+                finish(WiFiService.CONNECT_RESULT_CONNECTED);
+            }
+        } else if (WifiManager.SUPPLICANT_STATE_CHANGED_ACTION.equals(intent.getAction())) {
+            if (intent.getIntExtra(WifiManager.EXTRA_SUPPLICANT_ERROR, 0) == WifiManager.ERROR_AUTHENTICATING) {
+                finish(WiFiService.CONNECT_RESULT_AUTH_FAILURE);
+            }
+        }
+    }
+
+    private boolean isConnectedToPendingNetwork() {
+        return pendingSsid.equals(getConnectedSsid());
+    }
+
+    // The quoted SSID of the current connection, null when there is none or it is hidden
+    private String getConnectedSsid() {
+        WifiInfo info = wifiManager.getConnectionInfo();
+        if (info == null || info.getNetworkId() == -1) return null;
+        String ssid = info.getSSID();
+        return ssid == null || UNKNOWN_SSID.equals(ssid) ? null : ssid;
+    }
+
+    private void finish(int result) {
+        if (pendingSsid == null) return;
+        String ssid = pendingSsid;
+        long latencyUs = (SystemClock.elapsedRealtimeNanos() - pendingStartNanos) / 1000;
+        WiFiService.OnWiFiConnectResultListener listener = pendingListener;
+        pendingSsid = null;
+        pendingListener = null;
+
+        handler.removeCallbacks(timeoutRunnable);
+        if (receiverRegistered) {
+            context.unregisterReceiver(this);
+            receiverRegistered = false;
+        }
+
+        MXRMetrics.count("wifi.connectResult", result);
+        if (MXRMetrics.isEnabled()) MXRMetrics.record("wifi.connectUs." + result, latencyUs);
+        Log.v(TAG, "Connecting to " + ssid + " ended with " + result + " after " + latencyUs / 1000 + "ms");
+        if (listener != null) listener.onWiFiConnectResult(unquote(ssid), result, latencyUs / 1000);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+    }
+}
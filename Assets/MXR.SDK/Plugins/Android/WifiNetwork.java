@@ -0,0 +1,95 @@
+package com.mightyimmersion.customlauncher;
+
+import android.net.wifi.ScanResult;
+
+/**
+ * A Wi-Fi network seen by WiFiService, represented by its strongest access point.
+ * Instances are owned and reused by WifiScanEngine, so copy what you need instead of keeping them.
+ */
+public class WifiNetwork {
+    public static final int SECURITY_OPEN = 0;
+    public static final int SECURITY_WEP = 1;
+    public static final int SECURITY_PSK = 2;
+    public static final int SECURITY_EAP = 3;
+    public static final int SECURITY_SAE = 4;
+
+    String ssid;
+    String bssid;
+    int rssi;
+    int frequency;
+    int security;
+
+    // Bookkeeping of WifiScanEngine
+    int lastSeenScan;
+    int missedScans;
+
+    WifiNetwork() {
+    }
+
+    void set(ScanResult result) {
+        ssid = result.SSID;
+        bssid = result.BSSID;
+        rssi = result.level;
+        frequency = result.frequency;
+        security = securityOf(result.capabilities);
+    }
+
+    void clear() {
+        ssid = null;
+        bssid = null;
+        rssi = 0;
+        frequency = 0;
+        security = SECURITY_OPEN;
+        lastSeenScan = 0;
+        missedScans = 0;
+    }
+
+    public String getSsid() {
+        return ssid;
+    }
+
+    /**
+     * The BSSID of the strongest access point of the network in the last scan
+     */
+    public String getBssid() {
+        return bssid;
+    }
+
+    /**
+     * Signal strength in dBm
+     */
+    public int getRssi() {
+        return rssi;
+    }
+
+    /**
+     * Frequency in MHz
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * One of the SECURITY_ constants
+     */
+    public int getSecurity() {
+        return security;
+    }
+
+    @Override
+    public String toString() {
+        return ssid + " (" + bssid + ", " + rssi + " dBm, " + frequency + " MHz)";
+    }
+
+    /**
+     * Classifies the capabilities string of a scan result, e.g. "[WPA2-PSK-CCMP][ESS]"
+     */
+    static int securityOf(String capabilities) {
+        if (capabilities == null) return SECURITY_OPEN;
+        if (capabilities.contains("SAE")) return SECURITY_SAE;
+        if (capabilities.contains("EAP")) return SECURITY_EAP;
+        if (capabilities.contains("PSK")) return SECURITY_PSK;
+        if (capabilities.contains("WEP")) return SECURITY_WEP;
+        return SECURITY_OPEN;
+    }
+}
@@ -0,0 +1,120 @@
+package com.mightyimmersion.customlauncher;
+
+import android.net.wifi.ScanResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Merges successive scan results into one WifiNetwork per SSID, keeping its strongest BSSID, and
+ * works out what changed since the previous scan:
+ * - added: an SSID that was not known
+ * - removed: an SSID missing from MISSED_SCANS_BEFORE_REMOVAL scans in a row, so one scan that
+ *   misses a weak network does not remove and re-add it
+ * - changed: the strongest BSSID or the security changed, or the RSSI moved by RSSI_CHANGE_DB or more
+ * Smaller RSSI fluctuations are not reported. Hidden networks (empty SSID) are ignored.
+ *
+ * WifiNetwork instances are recycled through a pool, and the delta lists are reused between scans,
+ * so both are only valid until the next merge. Not thread safe, used from the WiFi thread only.
+ */
+class WifiScanEngine {
+    static final int RSSI_CHANGE_DB = 5;
+    static final int MISSED_SCANS_BEFORE_REMOVAL = 2;
+
+    private final HashMap<String, WifiNetwork> networks = new HashMap<>();
+    private final HashMap<String, ScanResult> strongest = new HashMap<>();
+    private final ArrayDeque<WifiNetwork> pool = new ArrayDeque<>();
+    private final ArrayList<WifiNetwork> added = new ArrayList<>();
+    private final ArrayList<WifiNetwork> removed = new ArrayList<>();
+    private final ArrayList<WifiNetwork> changed = new ArrayList<>();
+    private int scan;
+
+    /**
+     * Merges the results of a scan. Returns whether anything was added, removed or changed.
+     */
+    boolean merge(List<ScanResult> results) {
+        // The networks removed by the previous merge are no longer referenced by the caller
+        for (WifiNetwork network : removed) {
+            network.clear();
+            pool.push(network);
+        }
+        added.clear();
+        removed.clear();
+        changed.clear();
+        scan++;
+
+        strongest.clear();
+        if (results != null) {
+            for (ScanResult result : results) {
+                if (result.SSID == null || result.SSID.isEmpty()) continue;
+                ScanResult best = strongest.get(result.SSID);
+                if (best == null || result.level > best.level) strongest.put(result.SSID, result);
+            }
+        }
+
+        for (ScanResult result : strongest.values()) {
+            WifiNetwork network = networks.get(result.SSID);
+            if (network == null) {
+                network = obtain();
+                network.set(result);
+                networks.put(network.ssid, network);
+                added.add(network);
+            } else if (isSignificantChange(network, result)) {
+                network.set(result);
+                changed.add(network);
+            }
+            network.lastSeenScan = scan;
+            network.missedScans = 0;
+        }
+        strongest.clear();
+
+        Iterator<WifiNetwork> iterator = networks.values().iterator();
+        while (iterator.hasNext()) {
+            WifiNetwork network = iterator.next();
+            if (network.lastSeenScan == scan) continue;
+            if (++network.missedScans >= MISSED_SCANS_BEFORE_REMOVAL) {
+                iterator.remove();
+                removed.add(network);
+            }
+        }
+        return !added.isEmpty() || !removed.isEmpty() || !changed.isEmpty();
+    }
+
+    List<WifiNetwork> getAdded() {
+        return added;
+    }
+
+    List<WifiNetwork> getRemoved() {
+        return removed;
+    }
+
+    List<WifiNetwork> getChanged() {
+        return changed;
+    }
+
+    /**
+     * All known networks, one per SSID
+     */
+    Collection<WifiNetwork> getNetworks() {
+        return networks.values();
+    }
+
+    private static boolean isSignificantChange(WifiNetwork network, ScanResult result) {
+        return Math.abs(network.rssi - result.level) >= RSSI_CHANGE_DB
+                || !equals(network.bssid, result.BSSID)
+                || network.security != WifiNetwork.securityOf(result.capabilities);
+    }
+
+    private WifiNetwork obtain() {
+        WifiNetwork network = pool.poll();
+        return network != null ? network : new WifiNetwork();
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
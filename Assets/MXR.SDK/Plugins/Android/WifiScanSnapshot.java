@@ -0,0 +1,75 @@
+package com.mightyimmersion.customlauncher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Immutable copy of the networks known to WiFiService, packed into primitive arrays so that JNI
+ * consumers read a whole scan with a couple of calls and no per-network objects. Networks are
+ * sorted by signal strength, strongest first.
+ *
+ * Network i is described by data[i * STRIDE .. i * STRIDE + STRIDE - 1]:
+ * - SSID: index into strings
+ * - RSSI: dBm
+ * - FREQUENCY: MHz
+ * - SECURITY: one of the WifiNetwork.SECURITY_ constants
+ *
+ * From Unity:
+ * var snapshot = wifiService.Call<AndroidJavaObject>("getScanSnapshot");
+ * var strings = snapshot.Get<string[]>("strings");
+ * var data = snapshot.Get<int[]>("data");
+ */
+public class WifiScanSnapshot {
+    public static final int STRIDE = 4;
+    public static final int SSID = 0;
+    public static final int RSSI = 1;
+    public static final int FREQUENCY = 2;
+    public static final int SECURITY = 3;
+
+    static final WifiScanSnapshot EMPTY = new WifiScanSnapshot(0, new String[0], new int[0]);
+
+    private static final Comparator<WifiNetwork> STRONGEST_FIRST = (a, b) -> Integer.compare(b.rssi, a.rssi);
+
+    /**
+     * Increases with every scan that changed the known networks
+     */
+    public final int version;
+    public final String[] strings;
+    public final int[] data;
+
+    WifiScanSnapshot(int _version, String[] _strings, int[] _data) {
+        version = _version;
+        strings = _strings;
+        data = _data;
+    }
+
+    public int getNetworkCount() {
+        return data.length / STRIDE;
+    }
+
+    /**
+     * Packs the networks, using scratch to sort them
+     */
+    static WifiScanSnapshot of(int version, Collection<WifiNetwork> networks, ArrayList<WifiNetwork> scratch) {
+        scratch.clear();
+        scratch.addAll(networks);
+        Collections.sort(scratch, STRONGEST_FIRST);
+
+        int count = scratch.size();
+        String[] strings = new String[count];
+        int[] data = new int[count * STRIDE];
+        for (int i = 0; i < count; i++) {
+            WifiNetwork network = scratch.get(i);
+            int offset = i * STRIDE;
+            strings[i] = network.ssid;
+            data[offset + SSID] = i;
+            data[offset + RSSI] = network.rssi;
+            data[offset + FREQUENCY] = network.frequency;
+            data[offset + SECURITY] = network.security;
+        }
+        scratch.clear();
+        return new WifiScanSnapshot(version, strings, data);
+    }
+}
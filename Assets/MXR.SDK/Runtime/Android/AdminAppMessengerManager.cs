@@ -34,12 +34,18 @@ namespace MXR.SDK {
         /// Creates an instance of the messenger manager
         /// </summary>
         public AdminAppMessengerManager() {
-            native = new AndroidJavaObject(
-                "com.mightyimmersion.customlauncher.AdminAppMessengerManager",
-                MXRAndroidUtils.ApplicationContext,
-                new AdminAppMessengerListener(this),
-                MXRAndroidUtils.NativeUtils
-            );
+            var listener = new AdminAppMessengerListener(this);
+
+            // Reuse the messenger LauncherStartup already bound, it replays what it received so far
+            native = MXRAndroidUtils.LauncherStartup?.SafeCall<AndroidJavaObject>("attachMessenger", listener);
+            if (native == null) {
+                native = new AndroidJavaObject(
+                    "com.mightyimmersion.customlauncher.AdminAppMessengerManager",
+                    MXRAndroidUtils.ApplicationContext,
+                    listener,
+                    MXRAndroidUtils.NativeUtils
+                );
+            }
             Debug.unityLogger.Log(LogType.Log, "AdminAppMessengerManager JNI bridge created.");
             if(!IsBoundToService)
                 Debug.unityLogger.Log(LogType.Log, "AdminAppMessengerManager waiting to bind with admin app.");
@@ -85,7 +91,10 @@ namespace MXR.SDK {
         /// Same as Call<bool>("sendMessage", int)
         /// </summary>
         /// <param name="messageType">The type/ID of the message</param>
-        /// <returns>Whether the message was sent. This will be false if the messenger wasn't bound to service</returns>
+        /// <returns>
+        /// Whether the message was sent, or queued to be sent once the messenger binds to the service.
+        /// This will be false if the message was dropped because the queue was full.
+        /// </returns>
         public bool SendMessageToAdminApp(int messageType) =>
             native.SafeCall<bool>("sendMessage", messageType);
 
@@ -95,7 +104,10 @@ namespace MXR.SDK {
         /// </summary>
         /// <param name="messageType">The type/ID of the message</param>
         /// <param name="dataJson">Payload associated with the message as a json string</param>
-        /// <returns>Whether the message was sent. This will be false if the messenger wasn't bound to service</returns>
+        /// <returns>
+        /// Whether the message was sent, or queued to be sent once the messenger binds to the service.
+        /// This will be false if the message was dropped because the queue was full.
+        /// </returns>
         public bool SendMessageToAdminApp(int messageType, string dataJson) =>
             native.SafeCall<bool>("sendMessage", messageType, dataJson);
 
@@ -116,7 +128,7 @@ namespace MXR.SDK {
             /// </summary>
             /// <param name="bound">New bound status</param>
             public void onBindStatusToAdminAppChanged(bool bound) {
-                // Dispatch to Unity main thread since this is called from Android main thread
+                // Dispatch to Unity main thread since this is called from the Android admin IPC thread
                 Dispatcher.RunOnMainThread(() => {
                     if (messenger.IsBoundToService != bound) {
                         Debug.unityLogger.Log(LogType.Log, "AdminAppMessengerManager bind state changed to: " + bound);
@@ -132,7 +144,7 @@ namespace MXR.SDK {
             /// <param name="what">The message type</param>
             /// <param name="json">Message data</param>
             public void onMessageFromAdminApp(int what, string json) {
-                // Dispatch to Unity main thread since this is called from Android main thread
+                // Dispatch to Unity main thread since this is called from the Android admin IPC thread
                 Dispatcher.RunOnMainThread(() => {
                     try {
                         messenger.OnMessageFromAdminApp?.Invoke(what, json);
@@ -16,6 +16,23 @@ namespace MXR.SDK {
             "On Android 29, use android:requestLegacyExternalStorage=\"true\" in your AndroidManifest.xml." +
             "Refer to the MXR Unity SDK README for more info.";
 
+        /// <summary>
+        /// Starts the native LauncherStartup, so the package scan, state files, icon cache and
+        /// admin app binding are ready by the time the SDK initializes.
+        /// See <see cref="MXRManager.PrewarmLauncher"/>.
+        /// </summary>
+        internal static void StartNativePrewarm() {
+            var filePaths = new[] {
+                _externalRuntimeSettingsSummaryFilePath,
+                _externalDeviceStatusPath,
+                _cachedRuntimeSettingsSummaryPath,
+                _cachedDeviceStatusPath,
+                _cachedDeviceDataPath
+            };
+            new AndroidJavaClass("com.mightyimmersion.customlauncher.LauncherStartup")
+                .SafeCallStatic<AndroidJavaObject>("start", MXRAndroidUtils.ApplicationContext, filePaths, 0);
+        }
+
         private async void InitializeRuntimeSettingsSummary() {
             bool InitFromFile(string path) {
                 if (DeserializeFromFile(path, out var contents, out RuntimeSettingsSummary runtimeSettingsSummary)) {
@@ -64,9 +81,7 @@ namespace MXR.SDK {
 
             LogIfEnabled(LogType.Warning, msg);
 
-            while (!IsConnectedToAdminApp) {
-                await Task.Delay(100);
-            }
+            await WaitForAdminAppConnection();
 
             LogIfEnabled(LogType.Log,
                 "Invoking RefreshRuntimeSettings to initialize RuntimeSettingsSummary using MXR Admin App");
@@ -102,9 +117,7 @@ namespace MXR.SDK {
             }
 
             LogIfEnabled(LogType.Warning, msg);
-            while (!IsConnectedToAdminApp) {
-                await Task.Delay(100);
-            }
+            await WaitForAdminAppConnection();
 
             LogIfEnabled(LogType.Log, "Invoking RefreshDeviceData to initialize DeviceData using MXR Admin App");
             RefreshDeviceData();
@@ -155,14 +168,60 @@ namespace MXR.SDK {
             }
 
             LogIfEnabled(LogType.Warning, msg);
-            while (!IsConnectedToAdminApp) {
-                await Task.Delay(100);
-            }
+            await WaitForAdminAppConnection();
 
             LogIfEnabled(LogType.Log, "Invoking RefreshDeviceStatus to initialize DeviceStatus using MXR Admin App");
             RefreshDeviceStatus();
         }
 
+        /// <summary>
+        /// Completes once the SDK is bound to the admin app, without polling.
+        /// </summary>
+        private Task WaitForAdminAppConnection() {
+            var connected = new TaskCompletionSource<bool>();
+
+            void OnChange(bool available) {
+                if (!available) {
+                    return;
+                }
+
+                OnAvailabilityChange -= OnChange;
+                connected.TrySetResult(true);
+            }
+
+            OnAvailabilityChange += OnChange;
+            // The connection may have been made before subscribing
+            if (IsConnectedToAdminApp) {
+                OnChange(true);
+            }
+
+            return connected.Task;
+        }
+
+        /// <summary>
+        /// Has the native side push changes of the external json files written by the admin app
+        /// through <see cref="OnMessageFromAdminApp"/>, so they are picked up without IPC.
+        /// </summary>
+        private void WatchExternalFiles() {
+            if (!CanAccessExternalFiles) {
+                return;
+            }
+
+            _messenger.Call<bool>("watchJsonFile", AdminAppMessageTypes.RUNTIME_SETTINGS_SUMMARY,
+                _externalRuntimeSettingsSummaryFilePath);
+            _messenger.Call<bool>("watchJsonFile", AdminAppMessageTypes.DEVICE_STATUS,
+                _externalDeviceStatusPath);
+        }
+
+        /// <summary>
+        /// Returns the file contents LauncherStartup already read, if the file has not changed since,
+        /// and reads the file otherwise.
+        /// </summary>
+        private static string ReadAllText(string filePath) {
+            var contents = MXRAndroidUtils.LauncherStartup?.SafeCall<string>("getFileContents", filePath);
+            return contents ?? File.ReadAllText(filePath);
+        }
+
         private bool DeserializeFromFile<T>(string filePath, out string contents, out T value) {
             try {
                 if (!File.Exists(filePath)) {
@@ -171,7 +230,7 @@ namespace MXR.SDK {
                     return false;
                 }
 
-                contents = File.ReadAllText(filePath);
+                contents = ReadAllText(filePath);
 
                 // ENG-2351: Newtonsoft's JsonConvert.DeserializeObject<T>("")
                 // returns null without throwing, so the catch below never fires
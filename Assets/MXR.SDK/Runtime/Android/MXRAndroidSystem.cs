@@ -90,21 +90,21 @@ namespace MXR.SDK {
         private string lastDeviceStatusJSON = string.Empty;
         private string lastDeviceDataJSON = string.Empty;
 
-        private string _cachedJsonDirectory = Path.Combine(Application.persistentDataPath, "ManageXR");
+        private static string _cachedJsonDirectory => Path.Combine(Application.persistentDataPath, "ManageXR");
 
-        private string _cachedRuntimeSettingsSummaryPath =>
+        private static string _cachedRuntimeSettingsSummaryPath =>
             Path.Combine(_cachedJsonDirectory, "runtimeSettingsSummary.json");
 
-        private string _cachedDeviceStatusPath =>
+        private static string _cachedDeviceStatusPath =>
             Path.Combine(_cachedJsonDirectory, "deviceStatus.json");
 
-        private string _cachedDeviceDataPath =>
+        private static string _cachedDeviceDataPath =>
             Path.Combine(_cachedJsonDirectory, "deviceData.json");
 
-        private string _externalRuntimeSettingsSummaryFilePath =>
+        private static string _externalRuntimeSettingsSummaryFilePath =>
             MXRStorage.GetFullPath("MightyImmersion/runtimeSettingsSummary.json");
 
-        private string _externalDeviceStatusPath =>
+        private static string _externalDeviceStatusPath =>
             MXRStorage.GetFullPath("MightyImmersion/deviceStatus.json");
 
         public MXRAndroidSystem() {
@@ -122,6 +122,7 @@ namespace MXR.SDK {
 
             InitializeRuntimeSettingsSummary();
             InitializeDeviceStatus();
+            WatchExternalFiles();
             RefreshWifiConnectionStatus();
             RefreshWifiNetworks();
 
@@ -175,16 +176,13 @@ namespace MXR.SDK {
             }
         }
 
-        public void ConnectToWifiNetwork(string ssid, string password) {
-            ssid = EscapeStringToJsonString(ssid);
-            password = EscapeStringToJsonString(password);
+        // Commands and requests made while not bound to the admin app are queued by the native
+        // messenger and sent in order once bound, see OutboundMessageQueue.
 
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "ConnectToWifiNetwork called. Invoking over JNI: connectToWifiNetworkAsync");
-                _messenger.Call<bool>("connectToWifiNetworkAsync", ssid, password);
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "ConnectToWifiNetwork ignored. System is not available (not bound to messenger).");
+        public void ConnectToWifiNetwork(string ssid, string password) {
+            LogIfEnabled(LogType.Log, "ConnectToWifiNetwork called. Invoking over JNI: connectToWifiNetworkAsync");
+            if (!_messenger.Call<bool>("connectToWifiNetworkAsync", ssid, password)) {
+                LogIfEnabled(LogType.Warning, "ConnectToWifiNetwork could not be sent or queued.");
             }
         }
 
@@ -193,217 +191,152 @@ namespace MXR.SDK {
                 throw new ArgumentNullException(nameof(enterpriseWifiConnectionRequest));
             }
 
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log,
-                    "ConnectToEnterpriseWifiNetwork called. Invoking over JNI: connectToEnterpriseWifiNetworkAsync");
-                var json = JsonConvert.SerializeObject(enterpriseWifiConnectionRequest, Formatting.None,
-                    new StringEnumConverter());
-                _messenger.Call<bool>("connectToEnterpriseWifiNetworkAsync", json);
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "ConnectToEnterpriseWifiNetwork ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log,
+                "ConnectToEnterpriseWifiNetwork called. Invoking over JNI: connectToEnterpriseWifiNetworkAsync");
+            var json = JsonConvert.SerializeObject(enterpriseWifiConnectionRequest, Formatting.None,
+                new StringEnumConverter());
+            if (!_messenger.Call<bool>("connectToEnterpriseWifiNetworkAsync", json)) {
+                LogIfEnabled(LogType.Warning, "ConnectToEnterpriseWifiNetwork could not be sent or queued.");
             }
         }
 
         public void DisableWifi() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "DisableWifi called. Invoking over JNI: disableWifiAsync");
-                _messenger.Call<bool>("disableWifiAsync");
-            } else {
-                LogIfEnabled(LogType.Warning, "DisableWifi ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "DisableWifi called. Invoking over JNI: disableWifiAsync");
+            if (!_messenger.Call<bool>("disableWifiAsync")) {
+                LogIfEnabled(LogType.Warning, "DisableWifi could not be sent or queued.");
             }
         }
 
         public void EnableWifi() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "EnableWifi called. Invoking over JNI: enableWifiAsync");
-                _messenger.Call<bool>("enableWifiAsync");
-            } else {
-                LogIfEnabled(LogType.Warning, "EnableWifi ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "EnableWifi called. Invoking over JNI: enableWifiAsync");
+            if (!_messenger.Call<bool>("enableWifiAsync")) {
+                LogIfEnabled(LogType.Warning, "EnableWifi could not be sent or queued.");
             }
         }
 
         public void ForgetWifiNetwork(string ssid) {
-            ssid = EscapeStringToJsonString(ssid);
-
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "ForgetWifiNetwork called. Invoking over JNI: forgetWifiNetworkAsync");
-                _messenger.Call<bool>("forgetWifiNetworkAsync", ssid);
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "ForgetWifiNetwork ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "ForgetWifiNetwork called. Invoking over JNI: forgetWifiNetworkAsync");
+            if (!_messenger.Call<bool>("forgetWifiNetworkAsync", ssid)) {
+                LogIfEnabled(LogType.Warning, "ForgetWifiNetwork could not be sent or queued.");
             }
         }
 
         public void RefreshWifiNetworks() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "RefreshWifiNetworks called. Invoking over JNI: getWifiNetworksAsync");
-                _messenger.Call<bool>("getWifiNetworksAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "RefreshWifiNetworks ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "RefreshWifiNetworks called. Invoking over JNI: getWifiNetworksAsync");
+            if (!_messenger.Call<bool>("getWifiNetworksAsync")) {
+                LogIfEnabled(LogType.Warning, "RefreshWifiNetworks could not be sent or queued.");
             }
         }
 
         public void RefreshWifiConnectionStatus() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log,
-                    "RefreshWifiConnectionStatus called. Invoking over JNI: getWifiConnectionStatusAsync");
-                _messenger.Call<bool>("getWifiConnectionStatusAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "RefreshWifiConnectionStatus ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log,
+                "RefreshWifiConnectionStatus called. Invoking over JNI: getWifiConnectionStatusAsync");
+            if (!_messenger.Call<bool>("getWifiConnectionStatusAsync")) {
+                LogIfEnabled(LogType.Warning, "RefreshWifiConnectionStatus could not be sent or queued.");
             }
         }
 
         public void RefreshRuntimeSettings() {
-            if (IsAvailable) {
-                LogIfEnabled(LogType.Log, "RefreshRuntimeSettings called. Invoking over JNI: getRuntimeSettingsAsync");
-                _messenger.Call<bool>("getRuntimeSettingsAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "RefreshRuntimeSettings ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "RefreshRuntimeSettings called. Invoking over JNI: getRuntimeSettingsAsync");
+            if (!_messenger.Call<bool>("getRuntimeSettingsAsync")) {
+                LogIfEnabled(LogType.Warning, "RefreshRuntimeSettings could not be sent or queued.");
             }
         }
 
         public void RefreshDeviceData() {
-            if (IsAvailable) {
-                LogIfEnabled(LogType.Log, "RefreshDeviceData called. Invoking over JNI: getDeviceDataAsync");
-                _messenger.Call<bool>("getDeviceDataAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "RefreshDeviceData ignored. System is not available (not bound to messenger.)");
+            LogIfEnabled(LogType.Log, "RefreshDeviceData called. Invoking over JNI: getDeviceDataAsync");
+            if (!_messenger.Call<bool>("getDeviceDataAsync")) {
+                LogIfEnabled(LogType.Warning, "RefreshDeviceData could not be sent or queued.");
             }
         }
 
         public void RefreshDeviceStatus() {
-            if (IsAvailable) {
-                LogIfEnabled(LogType.Log, "RefreshDeviceStatus called. Invoking over JNI: getDeviceStatusAsync");
-                _messenger.Call<bool>("getDeviceStatusAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "RefreshDeviceStatus ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "RefreshDeviceStatus called. Invoking over JNI: getDeviceStatusAsync");
+            if (!_messenger.Call<bool>("getDeviceStatusAsync")) {
+                LogIfEnabled(LogType.Warning, "RefreshDeviceStatus could not be sent or queued.");
             }
         }
 
         public void EnableKioskMode() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "EnableKioskMode called. Invoking over JNI: enableKioskModeAsync");
-                _messenger.Call<bool>("enableKioskModeAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "EnableKioskMode ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "EnableKioskMode called. Invoking over JNI: enableKioskModeAsync");
+            if (!_messenger.Call<bool>("enableKioskModeAsync")) {
+                LogIfEnabled(LogType.Warning, "EnableKioskMode could not be sent or queued.");
             }
         }
 
         public void DisableKioskMode() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "DisableKioskMode called. Invoking over JNI: disableKioskModeAsync");
-                _messenger.Call<bool>("disableKioskModeAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "DisableKioskMode ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "DisableKioskMode called. Invoking over JNI: disableKioskModeAsync");
+            if (!_messenger.Call<bool>("disableKioskModeAsync")) {
+                LogIfEnabled(LogType.Warning, "DisableKioskMode could not be sent or queued.");
             }
         }
 
         public void OverrideKioskApp(string packageName) {
-            packageName = EscapeStringToJsonString(packageName);
-
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "OverrideKioskApp called. Invoking over JNI: overrideKioskAppAsync");
-                _messenger.Call<bool>("overrideKioskAppAsync", packageName);
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "OverrideKioskApp ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log, "OverrideKioskApp called. Invoking over JNI: overrideKioskAppAsync");
+            if (!_messenger.Call<bool>("overrideKioskAppAsync", packageName)) {
+                LogIfEnabled(LogType.Warning, "OverrideKioskApp could not be sent or queued.");
             }
         }
 
         public void KillApp(string packageName) {
-            packageName = EscapeStringToJsonString(packageName);
-
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "KillApp called. Invoking over JNI: killApp");
-                _messenger.Call<bool>("killApp", packageName);
-            } else {
-                LogIfEnabled(LogType.Warning, "KillApp ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log, "KillApp called. Invoking over JNI: killApp");
+            if (!_messenger.Call<bool>("killApp", packageName)) {
+                LogIfEnabled(LogType.Warning, "KillApp could not be sent or queued.");
             }
         }
 
 
         public void RetryAppDownload(string packageName) {
-            packageName = EscapeStringToJsonString(packageName);
-
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "RetryAppDownload called. Invoking over JNI: retryAppDownload");
-                _messenger.Call<bool>("retryAppDownload", packageName);
-            }
-            else {
-                LogIfEnabled(LogType.Warning, "retryAppDownload ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log, "RetryAppDownload called. Invoking over JNI: retryAppDownload");
+            if (!_messenger.Call<bool>("retryAppDownload", packageName)) {
+                LogIfEnabled(LogType.Warning, "RetryAppDownload could not be sent or queued.");
             }
         }
 
         public void RetryAppDownloads(IEnumerable<string> packageNames) {
-            packageNames = packageNames.Select(x => EscapeStringToJsonString(x));
-
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "RetryAppDownloads called. Invoking over JNI: retryAppDownloads");
-                _messenger.Call<bool>("retryAppDownloads", packageNames);
-            }
-            else {
-                LogIfEnabled(LogType.Warning, "retryAppDownloads ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log, "RetryAppDownloads called. Invoking over JNI: retryAppDownloads");
+            // Wrapped so the array is passed as a single String[] argument
+            if (!_messenger.Call<bool>("retryAppDownloads", new object[] { packageNames.ToArray() })) {
+                LogIfEnabled(LogType.Warning, "RetryAppDownloads could not be sent or queued.");
             }
         }
 
         public void RestartApp(string packageName) {
-            packageName = EscapeStringToJsonString(packageName);
-
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "RestartApp called. Invoking over JNI: restartApp");
-                _messenger.Call<bool>("restartApp", packageName);
-            } else {
-                LogIfEnabled(LogType.Warning, "restartApp ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log, "RestartApp called. Invoking over JNI: restartApp");
+            if (!_messenger.Call<bool>("restartApp", packageName)) {
+                LogIfEnabled(LogType.Warning, "RestartApp could not be sent or queued.");
             }
         }
 
         public void Shutdown() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "Shutdown called. Invoking over JNI: shutdown");
-                _messenger.Call<bool>("shutdown");
-            } else {
-                LogIfEnabled(LogType.Warning, "Shutdown ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log, "Shutdown called. Invoking over JNI: shutdown");
+            if (!_messenger.Call<bool>("shutdown")) {
+                LogIfEnabled(LogType.Warning, "Shutdown could not be sent or queued.");
             }
         }
 
         public void Reboot() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "Reboot called. Invoking over JNI: reboot");
-                _messenger.Call<bool>("reboot");
-            } else {
-                LogIfEnabled(LogType.Warning, "Reboot ignored. System is not available (not bound to messenger).");
+            LogIfEnabled(LogType.Log, "Reboot called. Invoking over JNI: reboot");
+            if (!_messenger.Call<bool>("reboot")) {
+                LogIfEnabled(LogType.Warning, "Reboot could not be sent or queued.");
             }
         }
 
         public void Sync() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "Sync called. Invoking over JNI: checkDbAsync");
-                _messenger.Call<bool>("checkDbAsync");
-            } else {
-                LogIfEnabled(LogType.Warning, "Sync ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "Sync called. Invoking over JNI: checkDbAsync");
+            if (!_messenger.Call<bool>("checkDbAsync")) {
+                LogIfEnabled(LogType.Warning, "Sync could not be sent or queued.");
             }
         }
 
         public void SendHomeScreenState(HomeScreenState state) {
-            if (_messenger.IsBoundToService) {
-                try {
-                    var stateJson = JsonConvert.SerializeObject(state);
-                    _messenger.Call<bool>("sendHomeScreenState", stateJson);
-                    LogIfEnabled(LogType.Log, "SendHomeScreenState called. Invoking over JNI: sendHomeScreenState");
-                } catch (Exception e) {
-                    Debug.LogError("An error occured while trying to send homescreen state " + e);
-                }
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "SendHomeScreenState ignored. System is not available (not bound to messenger.");
+            // Not bound to messenger: the state is queued and only the latest one is sent once bound
+            try {
+                var stateJson = JsonConvert.SerializeObject(state);
+                _messenger.Call<bool>("sendHomeScreenState", stateJson);
+                LogIfEnabled(LogType.Log, "SendHomeScreenState called. Invoking over JNI: sendHomeScreenState");
+            } catch (Exception e) {
+                Debug.LogError("An error occured while trying to send homescreen state " + e);
             }
         }
 
@@ -423,54 +356,43 @@ namespace MXR.SDK {
         }
 
         public void SendAnalyticsEvent(string eventJson) {
-            if (_messenger.IsBoundToService) {
-                try {
-                    _messenger.Call<bool>("sendAnalyticsEventAsync", eventJson);
+            // Not bound to messenger: the event is queued and sent once bound
+            try {
+                if (_messenger.Call<bool>("sendAnalyticsEventAsync", eventJson)) {
                     LogIfEnabled(LogType.Log, "SendAnalyticsEvent sent.");
-                } catch (Exception e) {
-                    Debug.LogError($"SendAnalyticsEvent failed: {e}");
+                } else {
+                    LogIfEnabled(LogType.Warning, "SendAnalyticsEvent dropped an event, it could not be sent or queued or the buffer is full.");
                 }
-            } else {
-                LogIfEnabled(LogType.Warning, "SendAnalyticsEvent ignored. Messenger not bound.");
+            } catch (Exception e) {
+                Debug.LogError($"SendAnalyticsEvent failed: {e}");
             }
         }
 
         public void ExitLauncher() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "ExitLauncher called. Invoking over JNI: exitLauncherAsync");
-                _messenger.Call<bool>("exitLauncherAsync");
-            } else {
-                LogIfEnabled(LogType.Warning, "ExitLauncher ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "ExitLauncher called. Invoking over JNI: exitLauncherAsync");
+            if (!_messenger.Call<bool>("exitLauncherAsync")) {
+                LogIfEnabled(LogType.Warning, "ExitLauncher could not be sent or queued.");
             }
         }
 
         public void RequestCastingCode() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "RequestCastingCode called. Invoking over JNI: requestCastingCodeAsync");
-                _messenger.Call<bool>("requestCastingCodeAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "RequestCastingCode ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "RequestCastingCode called. Invoking over JNI: requestCastingCodeAsync");
+            if (!_messenger.Call<bool>("requestCastingCodeAsync")) {
+                LogIfEnabled(LogType.Warning, "RequestCastingCode could not be sent or queued.");
             }
         }
 
         public void StopCasting() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "StopCasting called. Invoking over JNI: stopCastingAsync");
-                _messenger.Call<bool>("stopCastingAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "StopCasting ignored. System is not available (not bound to messenger.");
+            LogIfEnabled(LogType.Log, "StopCasting called. Invoking over JNI: stopCastingAsync");
+            if (!_messenger.Call<bool>("stopCastingAsync")) {
+                LogIfEnabled(LogType.Warning, "StopCasting could not be sent or queued.");
             }
         }
 
         public void UploadDeviceLogs() {
-            if (_messenger.IsBoundToService) {
-                LogIfEnabled(LogType.Log, "UploadDeviceLogs called. Invoking over JNI: uploadDeviceLogsAsync");
-                _messenger.Call<bool>("uploadDeviceLogsAsync");
-            } else {
-                LogIfEnabled(LogType.Warning,
-                    "UploadDeviceLogs ignored. System is not available (not bound to messenger.)");
+            LogIfEnabled(LogType.Log, "UploadDeviceLogs called. Invoking over JNI: uploadDeviceLogsAsync");
+            if (!_messenger.Call<bool>("uploadDeviceLogsAsync")) {
+                LogIfEnabled(LogType.Warning, "UploadDeviceLogs could not be sent or queued.");
             }
         }
 
@@ -488,14 +410,5 @@ namespace MXR.SDK {
                 }
             }
         }
-
-        private string EscapeStringToJsonString(string input) {
-            // Escape JSON string. Ref: https://stackoverflow.com/a/26152046
-            // Then get rid of the encosing double quotes (") using substring
-            var output = JsonConvert.ToString(input);
-            output = output.Substring(1, output.Length - 2);
-
-            return output;
-        }
     }
 }
@@ -1,5 +1,8 @@
 ﻿using System;
+using System.Collections.Generic;
+using System.Linq;
 
+using Newtonsoft.Json;
 using UnityEngine;
 
 namespace MXR.SDK {
@@ -81,6 +84,130 @@ namespace MXR.SDK {
             return false;
         }
 
+        /// <summary>
+        /// Returns the install state, version and launch class of several apps
+        /// using a single JNI call. Prefer this over calling <see cref="IsAppInstalled(string)"/>
+        /// and <see cref="GetInstalledPackageVersionName(string)"/> for every app of a library.
+        /// </summary>
+        /// <param name="packageNames">The package names of the apps to look up</param>
+        /// <returns>
+        /// One entry per package name, in the same order.
+        /// Returns an empty list if unsuccessful.
+        /// </returns>
+        public static List<InstalledAppMetadata> GetInstalledAppMetadata(IEnumerable<string> packageNames) {
+            var names = packageNames.ToArray();
+            if (NativeUtils == null || names.Length == 0)
+                return new List<InstalledAppMetadata>();
+
+            // Wrap the array so it is passed as one argument instead of being expanded as params
+            var json = NativeUtils.SafeCall<string>("getAppMetadata", new object[] { names });
+            if (string.IsNullOrEmpty(json))
+                return new List<InstalledAppMetadata>();
+
+            try {
+                return JsonConvert.DeserializeObject<List<InstalledAppMetadata>>(json)
+                    ?? new List<InstalledAppMetadata>();
+            }
+            catch (Exception e) {
+                Debug.unityLogger.Log(LogType.Error, "Could not deserialize app metadata: " + e.Message);
+                return new List<InstalledAppMetadata>();
+            }
+        }
+
+        /// <summary>
+        /// Returns the path of a PNG file containing the icon of an installed app.
+        /// Icons are cached on disk per app version, so this is cheap after the first call
+        /// and avoids passing the image bytes over JNI. Load the file using
+        /// <see cref="System.IO.File.ReadAllBytes(string)"/> and <see cref="ImageConversion.LoadImage(Texture2D, byte[])"/>.
+        /// Note that the icon is rendered on the calling thread if it isn't cached yet.
+        /// </summary>
+        /// <param name="packageName">The package name of the app</param>
+        /// <param name="size">The width and height of the icon in pixels. 0 uses the size of the app icon</param>
+        /// <returns>Returns null if unsuccessful</returns>
+        public static string GetAppIconPath(string packageName, int size) {
+            if (NativeUtils != null)
+                return NativeUtils.SafeCall<string>("getIconPath", packageName, size);
+            return null;
+        }
+
+        /// <summary>
+        /// Renders the icon of an installed app straight into a texture as raw RGBA pixels,
+        /// skipping the PNG encoding and decoding of <see cref="GetAppIconPath(string, int)"/>.
+        /// The pixels use straight (non-premultiplied) alpha, so the texture blends with the
+        /// usual SrcAlpha/OneMinusSrcAlpha blend mode.
+        /// Note that the icon is rendered on the calling thread and is not cached.
+        /// </summary>
+        /// <param name="texture">
+        /// A square <see cref="TextureFormat.RGBA32"/> texture without mipmaps. The icon is rendered at its width.
+        /// </param>
+        /// <param name="packageName">The package name of the app</param>
+        /// <returns>Returns false if unsuccessful, the texture is then left unchanged</returns>
+        public static bool LoadAppIconPixels(Texture2D texture, string packageName) {
+            if (NativeUtils == null || texture == null)
+                return false;
+            if (texture.format != TextureFormat.RGBA32 || texture.width != texture.height || texture.mipmapCount != 1) {
+                Debug.unityLogger.Log(LogType.Error, "LoadAppIconPixels needs a square RGBA32 texture without mipmaps");
+                return false;
+            }
+
+            // Unity textures start at the bottom row
+            var pixels = NativeUtils.SafeCall<byte[]>("getIconPixels", packageName, texture.width, true);
+            if (pixels == null)
+                return false;
+
+            texture.LoadRawTextureData(pixels);
+            texture.Apply();
+            return true;
+        }
+
+        /// <summary>
+        /// Fired on the Unity main thread when apps are installed, updated or removed.
+        /// Bursts of changes, such as a bulk deployment, are delivered as one batch
+        /// with one entry per package, so the app list can be updated one entry at a time
+        /// instead of being rebuilt.
+        /// </summary>
+        public static event Action<List<PackageChange>> OnPackagesChanged {
+            add {
+                onPackagesChanged += value;
+                if (packageChangeListener == null && NativeUtils != null) {
+                    packageChangeListener = new PackageChangeListener();
+                    NativeUtils.SafeCall("addOnPackagesChangedListener", packageChangeListener);
+                }
+            }
+            remove => onPackagesChanged -= value;
+        }
+        static Action<List<PackageChange>> onPackagesChanged;
+        static PackageChangeListener packageChangeListener;
+
+        /// <summary>
+        /// Implements the PackageChangeReceiver.OnPackagesChangedListener native interface
+        /// </summary>
+        class PackageChangeListener : AndroidJavaProxy {
+            public PackageChangeListener()
+            : base("com.mightyimmersion.customlauncher.PackageChangeReceiver$OnPackagesChangedListener") { }
+
+            /// <summary>
+            /// Called by Java on the Android main thread with a java.util.List of PackageChange
+            /// </summary>
+            public void onPackagesChanged(AndroidJavaObject changes) {
+                var packageChangeClass = new AndroidJavaClass("com.mightyimmersion.customlauncher.PackageChange");
+                var json = packageChangeClass.SafeCallStatic<string>("toJson", changes);
+                if (string.IsNullOrEmpty(json))
+                    return;
+
+                List<PackageChange> list;
+                try {
+                    list = JsonConvert.DeserializeObject<List<PackageChange>>(json);
+                }
+                catch (Exception e) {
+                    Debug.unityLogger.Log(LogType.Error, "Could not deserialize package changes: " + e.Message);
+                    return;
+                }
+                if (list != null && list.Count > 0)
+                    Dispatcher.RunOnMainThread(() => onPackagesChanged?.Invoke(list));
+            }
+        }
+
         public static void LaunchRuntimeApp(RuntimeApp app) {
             if (string.IsNullOrEmpty(app.className))
                 LaunchAppWithPackageName(app.packageName);
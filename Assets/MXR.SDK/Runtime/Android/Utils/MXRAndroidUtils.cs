@@ -53,12 +53,44 @@ namespace MXR.SDK {
         static AndroidJavaObject applicationInfo;
 
         /// <summary>
-        /// Returns an instance of the NativeUtils.java class in the MXR SDK
+        /// Returns the running instance of the LauncherStartup.java class in the MXR SDK,
+        /// or null if startup prewarming did not run
+        /// </summary>
+        public static AndroidJavaObject LauncherStartup {
+            get {
+                if (launcherStartup == null) {
+                    AndroidJavaClass startupClass = new AndroidJavaClass("com.mightyimmersion.customlauncher.LauncherStartup");
+                    launcherStartup = startupClass.SafeCallStatic<AndroidJavaObject>("getInstance");
+                }
+                return launcherStartup;
+            }
+        }
+        static AndroidJavaObject launcherStartup;
+
+        /// <summary>
+        /// Returns the milliseconds from the start of prewarming to the end of each finished
+        /// <see cref="LauncherStartup"/> phase as JSON, e.g. {"packageIndex":180,"files":12},
+        /// or null if startup prewarming did not run
+        /// </summary>
+        public static string LauncherStartupTimingsJson =>
+            LauncherStartup?.SafeCall<string>("getTimingsJson");
+
+        /// <summary>
+        /// Returns whether every <see cref="LauncherStartup"/> phase has finished,
+        /// false if startup prewarming did not run
+        /// </summary>
+        public static bool IsLauncherStartupComplete =>
+            LauncherStartup?.SafeCall<bool>("isComplete") ?? false;
+
+        /// <summary>
+        /// Returns an instance of the NativeUtils.java class in the MXR SDK.
+        /// This is the instance LauncherStartup created if it ran, so its package scan is reused.
         /// </summary>
         public static AndroidJavaObject NativeUtils {
             get {
                 if(nativeUtils == null) 
-                    nativeUtils = new AndroidJavaObject("com.mightyimmersion.customlauncher.NativeUtils", ApplicationContext);
+                    nativeUtils = LauncherStartup?.SafeCall<AndroidJavaObject>("getNativeUtils")
+                        ?? new AndroidJavaObject("com.mightyimmersion.customlauncher.NativeUtils", ApplicationContext);
                 return nativeUtils;
             }
         }
@@ -107,6 +139,23 @@ namespace MXR.SDK {
                 Debug.unityLogger.Log(LogType.Error, "Could not broadcast action " + action);
         }
 
+        /// <summary>
+        /// Enables or disables native plugin metrics (IPC, PackageManager, icon and WiFi timings).
+        /// Metrics are disabled by default and cost nothing while disabled.
+        /// </summary>
+        /// <param name="enabled">Whether metrics should be recorded</param>
+        public static void SetNativeMetricsEnabled(bool enabled) {
+            NativeUtils?.SafeCall("setMetricsEnabled", enabled);
+        }
+
+        /// <summary>
+        /// Returns a JSON snapshot of the native plugin metrics, with "counters" and
+        /// "histograms" (durations in microseconds) objects.
+        /// </summary>
+        public static string GetNativeMetricsSnapshot() {
+            return NativeUtils?.SafeCall<string>("getMetricsSnapshot");
+        }
+
         /// <summary>
         /// Returns an instance of the NativeUtils.java class in the MXR SDK
         /// </summary>
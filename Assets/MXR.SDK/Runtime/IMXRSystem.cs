@@ -264,6 +264,7 @@ namespace MXR.SDK {
 
         /// <summary>
         /// Sends the <see cref="HomeScreenState"/> to the system.
+        /// If the system is not available, only the latest state is sent once it becomes available.
         /// </summary>
         /// <param name="state">The state to be sent</param>
         void SendHomeScreenState(HomeScreenState state);
@@ -274,6 +275,7 @@ namespace MXR.SDK {
         /// <summary>
         /// Send an analytics event to the Admin App.
         /// You can build the JSON string with <see cref="AnalyticsEventPayload.ToJson"/>
+        /// If the system is not available, the event is queued and sent once it becomes available.
         /// </summary>
         /// <param name="eventJson">
         /// Analytics event payload as JSON:
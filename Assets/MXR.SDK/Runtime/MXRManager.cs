@@ -176,6 +176,20 @@ namespace MXR.SDK {
             return System;
         }
 
+        /// <summary>
+        /// Opt-in for launcher apps: starts scanning installed packages, rendering the icons of
+        /// launchable apps and binding to the Admin App right away, so they are ready by the time
+        /// <see cref="InitAsync(IMXRSystem)"/> is called. Call it as early as possible, e.g. from a
+        /// [RuntimeInitializeOnLoadMethod(RuntimeInitializeLoadType.BeforeSceneLoad)] method, and
+        /// before using <see cref="MXRAndroidUtils"/>. Other apps should not call it.
+        /// Does nothing in the Unity Editor.
+        /// </summary>
+        public static void PrewarmLauncher() {
+#if UNITY_ANDROID && !UNITY_EDITOR
+            MXRAndroidSystem.StartNativePrewarm();
+#endif
+        }
+
         /// <summary>
         /// Sets a new object as the home screen state
         /// </summary>
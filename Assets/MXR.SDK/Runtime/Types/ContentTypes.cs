@@ -266,4 +266,75 @@ namespace MXR.SDK {
         /// </summary>
         public long expirationTimestamp;
     }
+
+    /// <summary>
+    /// Install state of an app on the device, as returned by
+    /// <see cref="MXRAndroidUtils.GetInstalledAppMetadata(IEnumerable{string})"/>
+    /// </summary>
+    [System.Serializable]
+    public class InstalledAppMetadata {
+        /// <summary>
+        /// Package name of the application
+        /// </summary>
+        public string packageName;
+
+        /// <summary>
+        /// Whether the application is installed on the device
+        /// </summary>
+        public bool installed;
+
+        /// <summary>
+        /// Version code of the installed application. -1 if not installed
+        /// </summary>
+        public long versionCode = -1;
+
+        /// <summary>
+        /// Version name of the installed application. Null if not installed
+        /// </summary>
+        public string versionName;
+
+        /// <summary>
+        /// Class name of the launcher activity of the installed application.
+        /// Null if not installed or if the application has no launcher activity
+        /// </summary>
+        public string className;
+    }
+
+    /// <summary>
+    /// An app that was installed, updated or removed, as reported by
+    /// <see cref="MXRAndroidUtils.OnPackagesChanged"/>
+    /// </summary>
+    [System.Serializable]
+    public class PackageChange {
+        /// <summary>
+        /// Package name of the application
+        /// </summary>
+        public string packageName;
+
+        /// <summary>
+        /// What happened to the application: "added", "removed", "replaced" (updated or reinstalled)
+        /// or "changed" (e.g. a component was enabled or disabled)
+        /// </summary>
+        public string action;
+
+        /// <summary>
+        /// Whether the change was part of an update of the application
+        /// </summary>
+        public bool replacing;
+
+        /// <summary>
+        /// Whether the application is installed after the change
+        /// </summary>
+        public bool installed;
+
+        /// <summary>
+        /// Version code of the installed application. -1 if not installed
+        /// </summary>
+        public long versionCode = -1;
+
+        /// <summary>
+        /// Version name of the installed application. Null if not installed
+        /// </summary>
+        public string versionName;
+    }
 }